@@ -0,0 +1,8 @@
+package disassembler;
+
+record AnswerPair<First, Second>(First first, Second second) {
+    @Override
+    public String toString() {
+        return String.format("%s %s", first, second);
+    }
+}
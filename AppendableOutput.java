@@ -0,0 +1,22 @@
+package disassembler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class AppendableOutput extends OutputBuffer {
+    private final Appendable out;
+
+    public AppendableOutput(final Appendable out) {
+        super(2 * CHUNK);
+        this.out = out;
+    }
+
+    /**
+     * Only called on line boundaries, so a multi-byte character is never split between two flushes.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.append(new String(buffer, 0, length, StandardCharsets.UTF_8));
+        clear();
+    }
+}
@@ -0,0 +1,172 @@
+package disassembler;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Disassembles many files in one JVM. Every file gets its own {@link Parser}, failures are
+ * reported per file and never abort the rest of the batch.
+ */
+public class Batch {
+    private final List<Path> inputs;
+    private final Path outDir;
+    private final Search search;
+
+    public Batch(final List<Path> inputs, final String outDir) {
+        this(inputs, outDir, null);
+    }
+
+    /**
+     * With a non-null {@code search}, every output file lists only the matching instructions.
+     */
+    public Batch(final List<Path> inputs, final String outDir, final Search search) {
+        this.inputs = inputs;
+        this.outDir = Paths.get(outDir);
+        this.search = search;
+    }
+
+    /**
+     * {@code @file} is a manifest with one path per line, a directory means all regular files in it,
+     * anything else is treated as a glob such as {@code tests/*.elf}.
+     */
+    public static List<Path> collect(final String spec) throws IOException {
+        if (spec.startsWith("@")) {
+            final List<Path> paths = new ArrayList<>();
+            for (String line : Files.readAllLines(Paths.get(spec.substring(1)))) {
+                line = line.strip();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    paths.add(Paths.get(line));
+                }
+            }
+            return paths;
+        }
+        final Path dir = Paths.get(spec);
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                return files.filter(Files::isRegularFile).sorted().toList();
+            }
+        }
+        int root = 0;
+        for (int i = 0; i < spec.length() && "*?[{".indexOf(spec.charAt(i)) < 0; i++) {
+            if (spec.charAt(i) == '/') {
+                root = i + 1;
+            }
+        }
+        final Path base = Paths.get(root == 0 ? "." : spec.substring(0, root));
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + spec.substring(root));
+        try (Stream<Path> files = Files.walk(base)) {
+            return files.filter(path -> Files.isRegularFile(path) && matcher.matches(base.relativize(path))).sorted().toList();
+        }
+    }
+
+    /**
+     * Mirrors every input below the deepest directory all inputs share, so that files with the same
+     * name in different directories get different outputs.
+     */
+    private List<Path> outputs() {
+        Path root = null;
+        for (Path input : inputs) {
+            final Path parent = input.toAbsolutePath().normalize().getParent();
+            if (root == null) {
+                root = parent;
+            }
+            while (!parent.startsWith(root)) {
+                root = root.getParent();
+            }
+        }
+        final Set<Path> seen = new HashSet<>();
+        final List<Path> outputs = new ArrayList<>();
+        for (Path input : inputs) {
+            final Path output = outDir.resolve(root.relativize(input.toAbsolutePath().normalize()) + ".txt");
+            if (!seen.add(output)) {
+                throw new Error(String.format("\"%s\" is listed twice", input));
+            }
+            outputs.add(output);
+        }
+        return outputs;
+    }
+
+    /**
+     * The parser opens its output before the input is known to be valid, so a failed file may have left
+     * a partial listing, or one from an earlier run; neither may look like its result.
+     */
+    private static void discard(final Path output) {
+        try {
+            Files.deleteIfExists(output);
+        } catch (IOException e) {
+            System.err.printf("%s: couldn't delete the partial output: %s%n", output, e.getMessage());
+        }
+    }
+
+    public boolean run(final int threads, final boolean virtual) throws IOException {
+        final List<Path> outputs = outputs();
+        for (Path output : outputs) {
+            Files.createDirectories(output.getParent());
+        }
+        final long start = System.nanoTime();
+        final List<Future<Long>> results = new ArrayList<>();
+        final ExecutorService pool = newPool(threads, virtual);
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                final Path input = inputs.get(i);
+                final Path output = outputs.get(i);
+                results.add(pool.submit(() -> {
+                    if (search != null) {
+                        Disassembler.search(input.toString(), output.toString(), OutputFormat.TEXT, search);
+                    } else {
+                        Disassembler.disassemble(input.toString(), output.toString(), new Disassembler.Options());
+                    }
+                    return Files.size(input);
+                }));
+            }
+            long bytes = 0;
+            int failed = 0;
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    bytes += results.get(i).get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    final Throwable cause = e.getCause();
+                    System.err.printf("%s: %s%n", inputs.get(i), cause.getMessage() != null ? cause.getMessage() : cause);
+                    discard(outputs.get(i));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new Error("batch was interrupted");
+                }
+            }
+            final double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+            System.out.printf("%d files, %d failed, %.1f MiB in %.3f s: %.1f files/s, %.1f MiB/s%n",
+                    inputs.size(), failed, bytes / 1048576.0, seconds, inputs.size() / seconds, bytes / 1048576.0 / seconds);
+            return failed == 0;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Virtual threads are used only when the running JDK has them (21+), platform threads otherwise.
+     */
+    static ExecutorService newPool(final int threads, final boolean virtual) {
+        if (virtual) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("virtual threads are not available, using platform threads");
+            }
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+}
@@ -0,0 +1,23 @@
+package disassembler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class ChannelOutput extends OutputBuffer {
+    private final WritableByteChannel channel;
+
+    public ChannelOutput(final WritableByteChannel channel) {
+        super(2 * CHUNK);
+        this.channel = channel;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        final ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, length);
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        clear();
+    }
+}
@@ -0,0 +1,71 @@
+package disassembler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Thin client of {@link Server}: {@code java disassembler.Client <address> <arguments of Main>} runs the
+ * command line in the server and exits with its status, so a short file does not pay for JVM warm-up.
+ */
+public class Client {
+    public static void main(String[] args) {
+        final String[] command = Arrays.copyOfRange(args, 1, args.length);
+        try (SocketChannel server = SocketChannel.open(Server.address(args[0]))) {
+            final DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(server)));
+            request.writeUTF(Paths.get("").toAbsolutePath().toString());
+            request.writeInt(command.length);
+            for (String arg : command) {
+                request.writeUTF(arg);
+            }
+            request.flush();
+            IOException upload = null;
+            try {
+                if (command.length > 1 && command[1].equals("-")) {
+                    System.in.transferTo(Channels.newOutputStream(server));
+                }
+                server.shutdownOutput();
+            } catch (IOException e) {
+                // The server stopped reading, e.g. it rejected the arguments; its reply says why.
+                upload = e;
+            }
+            final int status;
+            try {
+                status = replay(new DataInputStream(new BufferedInputStream(Channels.newInputStream(server))));
+            } catch (IOException e) {
+                throw upload != null ? upload : e;
+            }
+            System.exit(status);
+        } catch (IOException e) {
+            throw new Error(String.format("server \"%s\": %s", args[0], e.getMessage()));
+        }
+    }
+
+    private static int replay(final DataInputStream reply) throws IOException {
+        final byte[] chunk = new byte[1 << 16];
+        while (true) {
+            final byte stream = reply.readByte();
+            final int length = reply.readInt();
+            if (stream == Server.EXIT) {
+                System.out.flush();
+                return length;
+            }
+            final OutputStream target = stream == Server.STDOUT ? System.out : System.err;
+            for (int left = length; left > 0; ) {
+                final int read = reply.read(chunk, 0, Math.min(left, chunk.length));
+                if (read < 0) {
+                    throw new IOException("connection closed");
+                }
+                target.write(chunk, 0, read);
+                left -= read;
+            }
+        }
+    }
+}
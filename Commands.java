@@ -0,0 +1,480 @@
+package disassembler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+class Commands {
+    protected static final int NO_TARGET = Integer.MIN_VALUE;
+    private final IntIndex symtabMap;
+    private final SymbolTable symbols;
+    private final boolean rv64;
+    private static final String[] REGISTER_NAMES = {
+            "zero", "ra", "sp", "gp", "tp", "t0", "t1", "t2",
+            "s0", "s1", "a0", "a1", "a2", "a3", "a4", "a5",
+            "a6", "a7", "s2", "s3", "s4", "s5", "s6", "s7",
+            "s8", "s9", "s10", "s11", "t3", "t4", "t5", "t6"
+    };
+    private static final String[] FLOAT_REGISTER_NAMES = {
+            "ft0", "ft1", "ft2", "ft3", "ft4", "ft5", "ft6", "ft7",
+            "fs0", "fs1", "fa0", "fa1", "fa2", "fa3", "fa4", "fa5",
+            "fa6", "fa7", "fs2", "fs3", "fs4", "fs5", "fs6", "fs7",
+            "fs8", "fs9", "fs10", "fs11", "ft8", "ft9", "ft10", "ft11"
+    };
+
+    protected Commands(final IntIndex symtabMap, final SymbolTable symbols) {
+        this(symtabMap, symbols, false);
+    }
+
+    protected Commands(final IntIndex symtabMap, final SymbolTable symbols, final boolean rv64) {
+        this.symtabMap = symtabMap;
+        this.symbols = symbols;
+        this.rv64 = rv64;
+    }
+
+    protected AnswerPair<String[], Boolean> parseCommand(ElfInput input, int left, int addr) {
+        final Instruction ins = new Instruction();
+        if (rv64) {
+            decode64(input, left, addr, ins);
+        } else {
+            decode(input, left, addr, ins);
+        }
+        return new AnswerPair<>(render(ins), ins.length == 4);
+    }
+
+    /**
+     * Same as {@link #parseCommand(ElfInput, int, int)} but reuses earlier results for the same raw
+     * instruction. Branches and jumps are never cached, their text depends on where they are.
+     */
+    protected AnswerPair<String[], Boolean> parseCommand(ElfInput input, int left, int addr, DecodeCache cache) {
+        final int half = input.cnt(left, 2);
+        final int key = (half & 0x3) != 0x3 ? half : input.word(left);
+        if (isRelative(key, rv64)) {
+            cache.bypass();
+            return parseCommand(input, left, addr);
+        }
+        AnswerPair<String[], Boolean> ans = cache.get(key);
+        if (ans == null) {
+            ans = parseCommand(input, left, addr);
+            cache.put(key, ans);
+        }
+        return ans;
+    }
+
+    private static boolean isRelative(final int key, final boolean rv64) {
+        if ((key & 0x3) != 0x3) {
+            final int format = RVC.FORMATS[RVC.slot(key)];
+            return format == RVC.J || format == RVC.JAL && !rv64 || format == RVC.BRANCH;
+        }
+        final int format = RISCV.FORMATS[key & 0x7f];
+        return format == RISCV.B || format == RISCV.JAL;
+    }
+
+    protected static int length(final ElfInput input, final int left) {
+        return (input.cnt(left, 1) & 0x3) == 0x3 ? 4 : 2;
+    }
+
+    protected static void decode(final ElfInput input, final int left, final int addr, final Instruction ins) {
+        final int half = input.cnt(left, 2);
+        ins.addr = addr;
+        if ((half & 0x3) != 0x3) {
+            ins.word = half;
+            ins.length = 2;
+            decodeCompressed(half, ins);
+        } else {
+            ins.word = input.word(left);
+            ins.length = 4;
+            decodeRiscV(ins.word, ins);
+        }
+        if (ins.mnemonic == null) {
+            unknown(ins);
+        }
+    }
+
+    /**
+     * Encodings no table defines decode to {@code unknown} with the raw bits as the operand, so corrupt
+     * input costs the same as valid input and never stops the run.
+     */
+    private static void unknown(final Instruction ins) {
+        ins.set("unknown", Instruction.WORD, 0, 0, 0, 0);
+    }
+
+    /**
+     * RV64 variant of {@link #decode}. Kept apart so the RV32 path does not test the width per instruction.
+     */
+    protected static void decode64(final ElfInput input, final int left, final int addr, final Instruction ins) {
+        final int half = input.cnt(left, 2);
+        ins.addr = addr;
+        if ((half & 0x3) != 0x3) {
+            ins.word = half;
+            ins.length = 2;
+            decodeCompressed64(half, ins);
+        } else {
+            ins.word = input.word(left);
+            ins.length = 4;
+            decodeRiscV64(ins.word, ins);
+        }
+        if (ins.mnemonic == null) {
+            unknown(ins);
+        }
+    }
+
+    /**
+     * RV64C reuses the single-precision load/store slots for doublewords and {@code c.jal} for
+     * {@code c.addiw}, and adds {@code c.subw}/{@code c.addw}; everything else decodes as RV32C.
+     */
+    private static void decodeCompressed64(final int half, final Instruction ins) {
+        final int rd = (half >>> 7) & 0x1f;
+        final int rdLow = RVC.low(half >>> 2);
+        final int rs1Low = RVC.low(half >>> 7);
+        switch (RVC.slot(half)) {
+            case 0b00011 -> ins.set("c.ld", Instruction.LOAD, rdLow, rs1Low, 0, RVC.immMem(half, true));
+            case 0b00111 -> ins.set("c.sd", Instruction.STORE, 0, rs1Low, rdLow, RVC.immMem(half, true));
+            case 0b01001 -> {
+                if (rd == 0) {
+                    unknown(ins);
+                } else {
+                    ins.set("c.addiw", Instruction.RI, rd, 0, 0, RVC.immCI(half));
+                }
+            }
+            case 0b10011 -> {
+                if (rd == 0) {
+                    unknown(ins);
+                } else {
+                    ins.set("c.ldsp", Instruction.LOAD, rd, 2, 0, RVC.immLoadSp(half, true));
+                }
+            }
+            case 0b10111 -> ins.set("c.sdsp", Instruction.STORE, 0, 2, (half >>> 2) & 0x1f, RVC.immStoreSp(half, true));
+            case 0b01100 -> {
+                if ((half & 0x1c00) != 0x1c00) {
+                    decodeCompressed(half, ins);
+                } else if ((half & 0x40) != 0) {
+                    unknown(ins);
+                } else {
+                    ins.set((half & 0x20) == 0 ? "c.subw" : "c.addw", Instruction.RR, rs1Low, 0, rdLow, 0);
+                }
+            }
+            default -> decodeCompressed(half, ins);
+        }
+    }
+
+    private static void decodeCompressed(final int half, final Instruction ins) {
+        final int slot = RVC.slot(half);
+        final String name = RVC.MNEMONICS[slot];
+        final int rd = (half >>> 7) & 0x1f;
+        final int rs2 = (half >>> 2) & 0x1f;
+        final int rdLow = RVC.low(half >>> 2);
+        final int rs1Low = RVC.low(half >>> 7);
+        final boolean doubleword = (slot & 0x7) == 0b001 || (slot & 0x7) == 0b101;
+        switch (RVC.FORMATS[slot]) {
+            case RVC.ADDI4SPN -> {
+                final int imm = RVC.immAddi4spn(half);
+                if (imm == 0) {
+                    unknown(ins);
+                } else {
+                    ins.set(name, Instruction.RRI, rdLow, 2, 0, imm);
+                }
+            }
+            case RVC.LOAD -> {
+                ins.set(name, Instruction.LOAD, rdLow, rs1Low, 0, RVC.immMem(half, doubleword));
+                ins.floating = RVC.FLOAT[slot];
+            }
+            case RVC.STORE -> {
+                ins.set(name, Instruction.STORE, 0, rs1Low, rdLow, RVC.immMem(half, doubleword));
+                ins.floating = RVC.FLOAT[slot];
+            }
+            case RVC.ADDI -> {
+                if (rd == 0) {
+                    ins.set("c.nop", Instruction.NONE, 0, 0, 0, 0);
+                } else {
+                    ins.set(name, Instruction.RI, rd, 0, 0, RVC.immCI(half));
+                }
+            }
+            case RVC.JAL, RVC.J -> ins.set(name, Instruction.CJ, 0, 0, 0, RVC.immJ(half));
+            case RVC.LI -> ins.set(name, Instruction.RI, rd, 0, 0, RVC.immCI(half));
+            case RVC.LUI -> {
+                if (RVC.immCI(half) == 0) {
+                    unknown(ins);
+                } else if (rd == 2) {
+                    ins.set("c.addi16sp", Instruction.RI, 2, 0, 0, RVC.immAddi16sp(half));
+                } else {
+                    ins.set(name, Instruction.RI, rd, 0, 0, RVC.immCI(half) << 12);
+                }
+            }
+            case RVC.ALU -> {
+                final int funct2 = (half >>> 10) & 0x3;
+                if (funct2 != 0b11) {
+                    ins.set(RVC.ALU_MNEMONICS[funct2], Instruction.RI, rs1Low, 0, 0, funct2 == 0b10 ? RVC.immCI(half) : RVC.shamt(half));
+                } else if ((half & 0x1000) != 0) {
+                    unknown(ins);
+                } else {
+                    ins.set(RVC.ARITHMETIC_MNEMONICS[(half >>> 5) & 0x3], Instruction.RR, rs1Low, 0, rdLow, 0);
+                }
+            }
+            case RVC.BRANCH -> ins.set(name, Instruction.CB, 0, rs1Low, 0, RVC.immB(half));
+            case RVC.SLLI -> ins.set(name, Instruction.RI, rd, 0, 0, RVC.shamt(half));
+            case RVC.LOAD_SP -> {
+                if (rd == 0 && !RVC.FLOAT[slot]) {
+                    unknown(ins);
+                } else {
+                    ins.set(name, Instruction.LOAD, rd, 2, 0, RVC.immLoadSp(half, doubleword));
+                    ins.floating = RVC.FLOAT[slot];
+                }
+            }
+            case RVC.MISC -> {
+                if ((half & 0x1000) == 0) {
+                    if (rs2 != 0) {
+                        ins.set("c.mv", Instruction.RR, rd, 0, rs2, 0);
+                    } else if (rd == 0) {
+                        unknown(ins);
+                    } else {
+                        ins.set("c.jr", Instruction.JR, 0, rd, 0, 0);
+                    }
+                } else if (rs2 != 0) {
+                    ins.set("c.add", Instruction.RR, rd, 0, rs2, 0);
+                } else if (rd == 0) {
+                    ins.set("c.ebreak", Instruction.NONE, 0, 0, 0, 0);
+                } else {
+                    ins.set("c.jalr", Instruction.JR, 0, rd, 0, 0);
+                }
+            }
+            case RVC.STORE_SP -> {
+                ins.set(name, Instruction.STORE, 0, 2, rs2, RVC.immStoreSp(half, doubleword));
+                ins.floating = RVC.FLOAT[slot];
+            }
+            default -> unknown(ins);
+        }
+    }
+
+    private static void decodeRiscV(final int word, final Instruction ins) {
+        final int opcode = word & 0x7f;
+        final int rd = (word >>> 7) & 0x1f;
+        final int funct3 = (word >>> 12) & 0x7;
+        final int rs1 = (word >>> 15) & 0x1f;
+        final int rs2 = (word >>> 20) & 0x1f;
+        final int funct7 = word >>> 25;
+
+        if (word == 0x00000073) {
+            ins.set("ecall", Instruction.NONE, 0, 0, 0, 0);
+            return;
+        } else if (word == 0x00100073) {
+            ins.set("ebreak", Instruction.NONE, 0, 0, 0, 0);
+            return;
+        }
+
+        switch (RISCV.FORMATS[opcode]) {
+            case RISCV.R -> ins.set(RISCV.parseR(funct7, funct3), Instruction.R, rd, rs1, rs2, 0);
+            case RISCV.B -> ins.set(RISCV.parseB(funct3), Instruction.B, 0, rs1, rs2, immB(word));
+            case RISCV.S -> ins.set(RISCV.parseS(funct3), Instruction.STORE, 0, rs1, rs2, immS(word));
+            case RISCV.U -> ins.set(RISCV.parseU(opcode), Instruction.RI, rd, 0, 0, word & 0xfffff000);
+            case RISCV.SYSTEM -> ins.set(RISCV.parseICsr(funct3), funct3 < 0b100 ? Instruction.CSR : Instruction.CSRI, rd, rs1, 0, word >>> 20);
+            case RISCV.I -> ins.set(RISCV.parseISr(funct3, funct7), Instruction.RRI, rd, rs1, 0, funct3 == 0b101 || funct3 == 0b001 ? rs2 : immI(word));
+            case RISCV.LOAD -> ins.set(RISCV.parseIL(funct3), Instruction.LOAD, rd, rs1, 0, immI(word));
+            case RISCV.JAL -> ins.set("jal", Instruction.J, rd, 0, 0, immJ(word));
+            case RISCV.JALR -> ins.set(funct3 == 0 ? "jalr" : null, Instruction.RRI, rd, rs1, 0, immI(word));
+            case RISCV.FENCE -> ins.set(funct3 == 0b000 ? "fence" : funct3 == 0b001 ? "fence.i" : null, Instruction.NONE, 0, 0, 0, 0);
+            default -> unknown(ins);
+        }
+    }
+
+    private static void decodeRiscV64(final int word, final Instruction ins) {
+        final int opcode = word & 0x7f;
+        final int rd = (word >>> 7) & 0x1f;
+        final int funct3 = (word >>> 12) & 0x7;
+        final int rs1 = (word >>> 15) & 0x1f;
+        final int rs2 = (word >>> 20) & 0x1f;
+        final int funct7 = word >>> 25;
+        switch (opcode) {
+            case 0b0000011 -> ins.set(RISCV.parseIL64(funct3), Instruction.LOAD, rd, rs1, 0, immI(word));
+            case 0b0100011 -> ins.set(RISCV.parseS64(funct3), Instruction.STORE, 0, rs1, rs2, immS(word));
+            case 0b0010011 -> {
+                if (funct3 == 0b001 || funct3 == 0b101) {
+                    ins.set(RISCV.parseISr64(funct3, word >>> 26), Instruction.RRI, rd, rs1, 0, (word >>> 20) & 0x3f);
+                } else {
+                    decodeRiscV(word, ins);
+                }
+            }
+            case 0b0011011 -> ins.set(RISCV.parseIW(funct3, funct7), Instruction.RRI, rd, rs1, 0, funct3 == 0 ? immI(word) : rs2);
+            case 0b0111011 -> ins.set(RISCV.parseRW(funct7, funct3), Instruction.R, rd, rs1, rs2, 0);
+            default -> decodeRiscV(word, ins);
+        }
+    }
+
+    protected String[] render(final Instruction ins) {
+        final String name = ins.mnemonic;
+        return switch (ins.layout) {
+            case Instruction.NONE -> new String[]{name};
+            case Instruction.R -> new String[]{name, reg(ins.rd), reg(ins.rs1), reg(ins.rs2)};
+            case Instruction.B -> new String[]{name, reg(ins.rs1), reg(ins.rs2), getLabel(ins.target())};
+            case Instruction.LOAD -> new String[]{
+                    String.format("%7s %s, %s(%s)", name, reg(ins.rd, ins.floating), "" + ins.imm, reg(ins.rs1))
+            };
+            case Instruction.STORE -> new String[]{
+                    String.format("%7s %s, %s(%s)", name, reg(ins.rs2, ins.floating), "" + ins.imm, reg(ins.rs1))
+            };
+            case Instruction.RI -> new String[]{name, reg(ins.rd), "" + ins.imm};
+            case Instruction.CSR -> new String[]{name, reg(ins.rd), csr(ins.imm), reg(ins.rs1)};
+            case Instruction.CSRI -> new String[]{name, reg(ins.rd), csr(ins.imm), "" + ins.rs1};
+            case Instruction.WORD -> new String[]{name, String.format(ins.length == 2 ? "0x%04x" : "0x%08x", ins.word)};
+            case Instruction.RRI -> new String[]{name, reg(ins.rd), reg(ins.rs1), "" + ins.imm};
+            case Instruction.J -> new String[]{name, reg(ins.rd), getLabel(ins.target())};
+            case Instruction.CJ -> new String[]{name, getLabel(ins.target())};
+            case Instruction.CB -> new String[]{name, reg(ins.rs1), getLabel(ins.target())};
+            case Instruction.RR -> new String[]{name, reg(ins.rd), reg(ins.rs2)};
+            default -> new String[]{name, reg(ins.rs1)};
+        };
+    }
+
+    protected static int immI(final int word) {
+        return word >> 20;
+    }
+
+    protected static int immS(final int word) {
+        return ((word >> 25) << 5) | ((word >>> 7) & 0x1f);
+    }
+
+    protected static int immB(final int word) {
+        return ((word >> 31) << 12) | ((word & 0x80) << 4) | (((word >>> 25) & 0x3f) << 5) | (((word >>> 8) & 0xf) << 1);
+    }
+
+    protected static int immJ(final int word) {
+        return ((word >> 31) << 20) | (word & 0xff000) | (((word >>> 20) & 1) << 11) | (((word >>> 21) & 0x3ff) << 1);
+    }
+
+    protected static String reg(final int reg) {
+        return REGISTER_NAMES[reg];
+    }
+
+    /**
+     * Standard name of a CSR, or its number in hex.
+     */
+    protected static String csr(final int csr) {
+        return switch (csr) {
+            case 0x001 -> "fflags";
+            case 0x002 -> "frm";
+            case 0x003 -> "fcsr";
+            case 0x100 -> "sstatus";
+            case 0x104 -> "sie";
+            case 0x105 -> "stvec";
+            case 0x140 -> "sscratch";
+            case 0x141 -> "sepc";
+            case 0x142 -> "scause";
+            case 0x143 -> "stval";
+            case 0x144 -> "sip";
+            case 0x180 -> "satp";
+            case 0x300 -> "mstatus";
+            case 0x301 -> "misa";
+            case 0x304 -> "mie";
+            case 0x305 -> "mtvec";
+            case 0x340 -> "mscratch";
+            case 0x341 -> "mepc";
+            case 0x342 -> "mcause";
+            case 0x343 -> "mtval";
+            case 0x344 -> "mip";
+            case 0xc00 -> "cycle";
+            case 0xc01 -> "time";
+            case 0xc02 -> "instret";
+            case 0xc80 -> "cycleh";
+            case 0xc81 -> "timeh";
+            case 0xc82 -> "instreth";
+            case 0xf14 -> "mhartid";
+            default -> String.format("0x%x", csr);
+        };
+    }
+
+    private static String reg(final int reg, final boolean floating) {
+        return floating ? FLOAT_REGISTER_NAMES[reg] : reg(reg);
+    }
+
+    /**
+     * First pass: decodes only opcode and immediate bits and returns absolute branch and jal targets.
+     */
+    protected static int[] collectTargets(ElfInput input, int left, int addr, int length, final boolean rv64) {
+        int[] targets = new int[16];
+        int count = 0;
+        for (int i = 0; i < length; i += length(input, left + i)) {
+            final int offset = branchOffset(input, left + i, rv64);
+            if (offset == NO_TARGET) {
+                continue;
+            }
+            if (count == targets.length) {
+                targets = Arrays.copyOf(targets, 2 * count);
+            }
+            targets[count++] = addr + i + offset;
+        }
+        return Arrays.copyOf(targets, count);
+    }
+
+    /**
+     * @return the pc-relative offset of a branch or jump, {@code NO_TARGET} for anything else.
+     */
+    protected static int branchOffset(final ElfInput input, final int left, final boolean rv64) {
+        final int half = input.cnt(left, 2);
+        if ((half & 0x3) != 0x3) {
+            return switch (RVC.FORMATS[RVC.slot(half)]) {
+                case RVC.JAL -> rv64 ? NO_TARGET : RVC.immJ(half);
+                case RVC.J -> RVC.immJ(half);
+                case RVC.BRANCH -> RVC.immB(half);
+                default -> NO_TARGET;
+            };
+        }
+        final int word = input.word(left);
+        return switch (RISCV.FORMATS[word & 0x7f]) {
+            case RISCV.B -> immB(word);
+            case RISCV.JAL -> immJ(word);
+            default -> NO_TARGET;
+        };
+    }
+
+    /**
+     * Like {@link #collectTargets}, but keeps every control transfer, indirect ones included, as
+     * {@code XrefIndex.STRIDE} ints: source, target and kind | length << 8.
+     */
+    protected static int[] collectEdges(ElfInput input, int left, int addr, int length, final boolean rv64) {
+        int[] edges = new int[16 * XrefIndex.STRIDE];
+        int count = 0;
+        for (int i = 0; i < length; ) {
+            final int size = length(input, left + i);
+            final int kind = controlKind(input, left + i, rv64);
+            if (kind != XrefIndex.NONE) {
+                if (count == edges.length) {
+                    edges = Arrays.copyOf(edges, 2 * count);
+                }
+                edges[count++] = addr + i;
+                edges[count++] = XrefIndex.hasTarget(kind) ? addr + i + branchOffset(input, left + i, rv64) : 0;
+                edges[count++] = kind | size << 8;
+            }
+            i += size;
+        }
+        return Arrays.copyOf(edges, count);
+    }
+
+    /**
+     * @return the {@link XrefIndex} kind of a branch, jump or call, {@code XrefIndex.NONE} for anything else.
+     */
+    protected static int controlKind(final ElfInput input, final int left, final boolean rv64) {
+        final int half = input.cnt(left, 2);
+        if ((half & 0x3) != 0x3) {
+            return switch (RVC.FORMATS[RVC.slot(half)]) {
+                case RVC.JAL -> rv64 ? XrefIndex.NONE : XrefIndex.CALL;
+                case RVC.J -> XrefIndex.JUMP;
+                case RVC.BRANCH -> XrefIndex.BRANCH;
+                case RVC.MISC -> (half & 0x7f) != 0x2 || (half & 0xf80) == 0 ? XrefIndex.NONE
+                        : (half & 0x1000) != 0 ? XrefIndex.INDIRECT_CALL : XrefIndex.INDIRECT;
+                default -> XrefIndex.NONE;
+            };
+        }
+        final int word = input.word(left);
+        final boolean links = ((word >>> 7) & 0x1f) != 0;
+        return switch (RISCV.FORMATS[word & 0x7f]) {
+            case RISCV.B -> XrefIndex.BRANCH;
+            case RISCV.JAL -> links ? XrefIndex.CALL : XrefIndex.JUMP;
+            case RISCV.JALR -> ((word >>> 12) & 0x7) != 0 ? XrefIndex.NONE : links ? XrefIndex.INDIRECT_CALL : XrefIndex.INDIRECT;
+            default -> XrefIndex.NONE;
+        };
+    }
+
+    protected String getLabel(int addr_command) {
+        final int index = symtabMap.get(addr_command);
+        return index >= 0 ? symbols.name(index) : "L" + Integer.toUnsignedString(addr_command);
+    }
+}
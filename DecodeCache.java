@@ -0,0 +1,82 @@
+package disassembler;
+
+/**
+ * Bounded cache from a raw instruction (a 32-bit word, or a 16-bit parcel for RVC) to its decoded form.
+ * It is 4-way set associative and every set is evicted with the CLOCK algorithm. Not thread-safe:
+ * each decoding thread uses its own instance.
+ */
+public class DecodeCache {
+    private static final int WAYS = 4;
+    private final int[] keys;
+    private final Object[] values;
+    private final boolean[] referenced;
+    private final byte[] hands;
+    private final int mask;
+    private long hits;
+    private long misses;
+    private long bypasses;
+
+    public DecodeCache(final int capacity) {
+        int sets = 1;
+        while (sets * WAYS < capacity) {
+            sets <<= 1;
+        }
+        keys = new int[sets * WAYS];
+        values = new Object[sets * WAYS];
+        referenced = new boolean[sets * WAYS];
+        hands = new byte[sets];
+        mask = sets - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public AnswerPair<String[], Boolean> get(final int key) {
+        final int base = set(key) * WAYS;
+        for (int slot = base; slot < base + WAYS; slot++) {
+            if (keys[slot] == key && values[slot] != null) {
+                referenced[slot] = true;
+                hits++;
+                return (AnswerPair<String[], Boolean>) values[slot];
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public void put(final int key, final AnswerPair<String[], Boolean> value) {
+        final int set = set(key);
+        int hand = hands[set];
+        while (values[set * WAYS + hand] != null && referenced[set * WAYS + hand]) {
+            referenced[set * WAYS + hand] = false;
+            hand = (hand + 1) & (WAYS - 1);
+        }
+        final int slot = set * WAYS + hand;
+        keys[slot] = key;
+        values[slot] = value;
+        referenced[slot] = true;
+        hands[set] = (byte) ((hand + 1) & (WAYS - 1));
+    }
+
+    /**
+     * Counts an instruction that is never cached because its text depends on its address.
+     */
+    public void bypass() {
+        bypasses++;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long bypasses() {
+        return bypasses;
+    }
+
+    private int set(final int key) {
+        final int h = key * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
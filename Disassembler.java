@@ -0,0 +1,125 @@
+package disassembler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Library entry point. Every call works on its own parser state, so any number of
+ * disassemblies can run concurrently in one JVM.
+ */
+public final class Disassembler {
+    private Disassembler() {
+    }
+
+    /**
+     * Settings of one run. Every setter returns {@code this}, so call sites name what they change, e.g.
+     * {@code new Options().format(OutputFormat.JSON).xref(true)}; the defaults are one thread and text output.
+     */
+    public static final class Options {
+        private int parallelism = 1;
+        private OutputFormat format = OutputFormat.TEXT;
+        private IncrementalCache incremental;
+        private Metrics metrics;
+        private boolean xref;
+
+        public Options parallelism(final int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Options format(final OutputFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        public OutputFormat format() {
+            return format;
+        }
+
+        /**
+         * With a non-null cache, functions whose bytes, labels and targets did not change since the run
+         * that saved the cache are copied from it instead of being decoded again.
+         */
+        public Options incremental(final IncrementalCache incremental) {
+            this.incremental = incremental;
+            return this;
+        }
+
+        /**
+         * A non-null {@code metrics} collects phase times and counters of the run, see {@link Metrics#toJson()}.
+         */
+        public Options metrics(final Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * With {@code xref}, the branch, jump and call edges and the basic blocks of every function are
+         * written after {@code .symtab}, see {@link XrefIndex}.
+         */
+        public Options xref(final boolean xref) {
+            this.xref = xref;
+            return this;
+        }
+
+        private Parser applyTo(final Parser parser) {
+            parser.setParallelism(parallelism);
+            parser.setFormat(format);
+            parser.setIncremental(incremental);
+            parser.setMetrics(metrics);
+            parser.setXref(xref);
+            return parser;
+        }
+    }
+
+    public static void disassemble(final ByteBuffer elf, final Appendable out) throws IOException {
+        disassemble(elf, out, new Options());
+    }
+
+    /**
+     * Text and JSON output only, the binary format needs a channel.
+     */
+    public static void disassemble(final ByteBuffer elf, final Appendable out, final Options options) throws IOException {
+        if (options.format == OutputFormat.BINARY) {
+            throw new Error("binary output can only be written to a channel");
+        }
+        options.applyTo(new Parser(new ElfInput(elf), new AppendableOutput(out))).disassemble();
+    }
+
+    /**
+     * Writes any {@link OutputFormat}, including the binary one, to a channel. The channel is not closed.
+     */
+    public static void disassemble(final ByteBuffer elf, final WritableByteChannel out, final Options options) throws IOException {
+        options.applyTo(new Parser(new ElfInput(elf), new ChannelOutput(out))).disassemble();
+    }
+
+    /**
+     * Reads the ELF file from a pipe, socket or {@code Channels.newChannel(inputStream)} and writes as it
+     * decodes. Neither channel is closed.
+     */
+    public static void disassemble(final ReadableByteChannel in, final WritableByteChannel out, final Options options) throws IOException {
+        options.applyTo(new Parser(ElfInput.read(in), new ChannelOutput(out))).disassemble();
+    }
+
+    public static void disassemble(final String fileIn, final String fileOut, final Options options) {
+        options.applyTo(new Parser(fileIn, fileOut)).parse(fileOut);
+    }
+
+    /**
+     * Writes only the instructions matching {@code search} and returns how many there were.
+     */
+    public static int search(final String fileIn, final String fileOut, final OutputFormat format, final Search search) {
+        final Parser parser = new Parser(fileIn, fileOut);
+        parser.setFormat(format);
+        return parser.search(search, fileOut);
+    }
+
+    public static int search(final ReadableByteChannel in, final WritableByteChannel out, final OutputFormat format,
+                             final Search search) throws IOException {
+        final Parser parser = new Parser(ElfInput.read(in), new ChannelOutput(out));
+        parser.setFormat(format);
+        return parser.search(search);
+    }
+}
@@ -0,0 +1,73 @@
+package disassembler;
+
+class Elf32Reader implements ElfReader {
+    private final ElfInput input;
+
+    protected Elf32Reader(final ElfInput input) {
+        this.input = input;
+    }
+
+    @Override
+    public boolean is64() {
+        return false;
+    }
+
+    @Override
+    public int sectionHeaders() {
+        return input.cnt(32, 4);
+    }
+
+    @Override
+    public int sectionHeaderSize() {
+        return input.cnt(46, 2);
+    }
+
+    @Override
+    public int sectionCount() {
+        return input.cnt(48, 2);
+    }
+
+    @Override
+    public int sectionNamesIndex() {
+        return input.cnt(50, 2);
+    }
+
+    @Override
+    public int[] section(final int left) {
+        final int[] param = new int[10];
+        for (int r = 0; r < 10; r++) {
+            param[r] = input.cnt(left + 4 * r, 4);
+        }
+        return param;
+    }
+
+    @Override
+    public int symbolSize() {
+        return 16;
+    }
+
+    @Override
+    public int symbolName(final int left) {
+        return input.cnt(left, 4);
+    }
+
+    @Override
+    public int symbolValue(final int left) {
+        return input.cnt(left + 4, 4);
+    }
+
+    @Override
+    public int symbolSize(final int left) {
+        return input.cnt(left + 8, 4);
+    }
+
+    @Override
+    public int symbolInfo(final int left) {
+        return input.cnt(left + 12, 1);
+    }
+
+    @Override
+    public int symbolOther(final int left) {
+        return input.cnt(left + 13, 3);
+    }
+}
@@ -0,0 +1,87 @@
+package disassembler;
+
+class Elf64Reader implements ElfReader {
+    private final ElfInput input;
+
+    protected Elf64Reader(final ElfInput input) {
+        this.input = input;
+    }
+
+    @Override
+    public boolean is64() {
+        return true;
+    }
+
+    @Override
+    public int sectionHeaders() {
+        return narrow(40, "e_shoff");
+    }
+
+    @Override
+    public int sectionHeaderSize() {
+        return input.cnt(58, 2);
+    }
+
+    @Override
+    public int sectionCount() {
+        return input.cnt(60, 2);
+    }
+
+    @Override
+    public int sectionNamesIndex() {
+        return input.cnt(62, 2);
+    }
+
+    @Override
+    public int[] section(final int left) {
+        return new int[]{
+                input.cnt(left, 4),
+                input.cnt(left + 4, 4),
+                input.cnt(left + 8, 4),
+                narrow(left + 16, "sh_addr"),
+                narrow(left + 24, "sh_offset"),
+                narrow(left + 32, "sh_size"),
+                input.cnt(left + 40, 4),
+                input.cnt(left + 44, 4),
+                input.cnt(left + 48, 4),
+                input.cnt(left + 56, 4)
+        };
+    }
+
+    @Override
+    public int symbolSize() {
+        return 24;
+    }
+
+    @Override
+    public int symbolName(final int left) {
+        return input.cnt(left, 4);
+    }
+
+    @Override
+    public int symbolValue(final int left) {
+        return input.cnt(left + 8, 4);
+    }
+
+    @Override
+    public int symbolSize(final int left) {
+        return input.cnt(left + 16, 4);
+    }
+
+    @Override
+    public int symbolInfo(final int left) {
+        return input.cnt(left + 4, 1);
+    }
+
+    @Override
+    public int symbolOther(final int left) {
+        return input.cnt(left + 5, 3);
+    }
+
+    private int narrow(final int left, final String field) {
+        if (input.cnt(left + 4, 4) != 0) {
+            throw new Error(String.format("%s does not fit in 32 bits", field));
+        }
+        return input.cnt(left, 4);
+    }
+}
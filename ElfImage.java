@@ -0,0 +1,149 @@
+package disassembler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Random-access disassembly for interactive use. Section headers and the symbol table are read once
+ * when the image is opened, every query then decodes only the requested range, so its cost depends
+ * on the size of the function or range and not on the size of the binary. Addresses in any executable
+ * section can be queried.
+ */
+public final class ElfImage {
+    private static final int MAX_BUFFER = 1 << 24;
+    private final Parser parser;
+    private final Map<String, Integer> functions = new HashMap<>();
+    private final int[] starts;
+    private final int[] ends;
+    private final String[] names;
+    private XrefIndex xrefs;
+
+    public ElfImage(final ByteBuffer elf) {
+        this(new ElfInput(elf));
+    }
+
+    private ElfImage(final ElfInput input) {
+        parser = new Parser(input, null);
+        parser.parseHeader();
+        parser.parseSymtab();
+        final SymbolTable symbols = parser.symbols();
+        final Integer[] order = new Integer[symbols.size()];
+        int count = 0;
+        for (int i = 0; i < symbols.size(); i++) {
+            if (symbols.isFunction(i)) {
+                functions.putIfAbsent(symbols.name(i), i);
+                order[count++] = i;
+            }
+        }
+        Arrays.sort(order, 0, count, (a, b) -> Integer.compareUnsigned(symbols.value(a), symbols.value(b)));
+        starts = new int[count];
+        ends = new int[count];
+        names = new String[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = symbols.value(order[i]);
+            ends[i] = starts[i] + symbols.size(order[i]);
+            names[i] = symbols.name(order[i]);
+        }
+    }
+
+    public static ElfImage open(final Path file) throws IOException {
+        return new ElfImage(ElfInput.map(file));
+    }
+
+    /**
+     * Disassembles the whole extent of the function symbol {@code name}.
+     */
+    public String function(final String name) {
+        final int index = functionIndex(name);
+        final SymbolTable symbols = parser.symbols();
+        return range(symbols.value(index), symbols.value(index) + symbols.size(index));
+    }
+
+    /**
+     * Disassembles {@code count} instructions starting at {@code addr}, stopping early at the end of its section.
+     */
+    public String at(final int addr, final int count) {
+        final Section text = checkAddress(addr);
+        int to = addr;
+        for (int i = 0; i < count && to - text.addr < text.size; i++) {
+            to += parser.instructionLength(to);
+        }
+        return range(addr, to);
+    }
+
+    /**
+     * Disassembles {@code [from, to)}, {@code from} has to be an instruction start and both ends in the
+     * same code section.
+     */
+    public String range(final int from, final int to) {
+        final Section text = checkAddress(from);
+        if (Integer.compareUnsigned(to - from, text.size - (from - text.addr)) > 0) {
+            throw new Error(".text", "No instruction range", String.format("0x%x-0x%x", from, to));
+        }
+        final OutputBuffer out = new OutputBuffer((int) Math.min(64L * (to - from), MAX_BUFFER));
+        parser.dumpRange(out, from, to);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Cross references of all code sections, built by one pass over the opcode bits on first use.
+     */
+    public synchronized XrefIndex xrefs() {
+        if (xrefs == null) {
+            xrefs = parser.buildXrefs();
+        }
+        return xrefs;
+    }
+
+    /**
+     * @return the addresses of all direct calls to the function symbol {@code name}.
+     */
+    public int[] callers(final String name) {
+        return xrefs().callers(parser.symbols().value(functionIndex(name)));
+    }
+
+    /**
+     * @return the start addresses of the basic blocks of the function symbol {@code name}.
+     */
+    public int[] blocks(final String name) {
+        return xrefs().blocks(parser.symbols().value(functionIndex(name)));
+    }
+
+    /**
+     * @return the name of the function whose extent contains {@code addr}, or {@code null}.
+     */
+    public String functionAt(final int addr) {
+        int lo = 0;
+        int hi = starts.length - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (Integer.compareUnsigned(starts[mid], addr) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi >= 0 && Integer.compareUnsigned(addr, ends[hi]) < 0 ? names[hi] : null;
+    }
+
+    private int functionIndex(final String name) {
+        final Integer index = functions.get(name);
+        if (index == null) {
+            throw new Error(".symtab", "No function", name);
+        }
+        return index;
+    }
+
+    private Section checkAddress(final int addr) {
+        final Section text = parser.codeSectionAt(addr);
+        if (text == null || (addr & 1) != 0) {
+            throw new Error(".text", "No instruction", String.format("0x%x", addr));
+        }
+        return text;
+    }
+}
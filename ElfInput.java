@@ -0,0 +1,163 @@
+package disassembler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class ElfInput {
+    /**
+     * Whether {@link #find} runs on the Vector API: the JVM was started with
+     * {@code --add-modules jdk.incubator.vector} and has SIMD registers of at least four ints.
+     */
+    protected static final boolean VECTOR = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && VectorScan.LANES >= 4;
+    private final ByteBuffer buffer;
+
+    public ElfInput(final ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static ElfInput map(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ElfInput(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads an ELF file from a pipe or any other channel. Section headers usually sit at the end of the
+     * file, so nothing can be decoded before the last byte arrives; the stream is spooled to a temporary
+     * file that is mapped like a regular input, which keeps it off the heap. A regular file is mapped
+     * directly from its current position.
+     */
+    public static ElfInput read(final ReadableByteChannel in) throws IOException {
+        if (in instanceof FileChannel file && seekable(file)) {
+            return new ElfInput(file.map(FileChannel.MapMode.READ_ONLY, file.position(), file.size() - file.position()));
+        }
+        final Path spool = Files.createTempFile("disassembler", ".elf");
+        try (FileChannel channel = FileChannel.open(spool, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE)) {
+            final ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 16);
+            while (in.read(chunk) >= 0) {
+                chunk.flip();
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                chunk.clear();
+            }
+            return new ElfInput(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * A FileChannel over a pipe cannot tell its position.
+     */
+    private static boolean seekable(final FileChannel file) {
+        try {
+            return file.size() > file.position();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public int size() {
+        return buffer.limit();
+    }
+
+    public int cnt(final int left, final int num) {
+        return switch (num) {
+            case 1 -> buffer.get(left) & 0xff;
+            case 2 -> left + 2 <= buffer.limit() ? buffer.getShort(left) & 0xffff : tail(left, 2);
+            case 4 -> left + 4 <= buffer.limit() ? buffer.getInt(left) : tail(left, 4);
+            default -> {
+                int ans = 0;
+                for (int i = num - 1; i >= 0; i--) {
+                    ans = (ans << 8) | (buffer.get(left + i) & 0xff);
+                }
+                yield ans;
+            }
+        };
+    }
+
+    public int word(final int left) {
+        return left + 4 <= buffer.limit() ? buffer.getInt(left) : tail(left, 4);
+    }
+
+    /**
+     * A pattern with mask bits above the low half is a 32-bit one and only matches where all four bytes
+     * lie before {@code to}. This is the hot loop of {@link Search}, so it reads the buffer directly.
+     *
+     * @return the first even offset in {@code [from, end)} whose word matches {@code value} under
+     * {@code mask}, or {@code end}.
+     */
+    public int find(int from, final int end, final int to, final int mask, final int value) {
+        if (VECTOR) {
+            from = VectorScan.find(buffer, from, end, Math.min(to, buffer.limit()), mask, value);
+        }
+        return findScalar(from, end, to, mask, value);
+    }
+
+    /**
+     * {@link #find} without the Vector API, the fallback when {@code jdk.incubator.vector} is missing.
+     */
+    protected int findScalar(int from, final int end, final int to, final int mask, final int value) {
+        final int words = Math.min(end, Math.min(to - 2, buffer.limit() - 3));
+        for (; from < words; from += 2) {
+            if ((buffer.getInt(from) & mask) == value) {
+                return from;
+            }
+        }
+        for (; from < end; from += 2) {
+            if (matches(from, to, mask, value)) {
+                return from;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return whether the pair matches at {@code left} without reaching past {@code to}.
+     */
+    public boolean matches(final int left, final int to, final int mask, final int value) {
+        return (word(left) & mask) == value && (left + 4 <= to || (mask >>> 16) == 0);
+    }
+
+    /**
+     * @return the first instruction start at or after {@code target}, walking from the instruction start {@code from}.
+     */
+    public int skip(int from, final int target) {
+        while (from < target) {
+            from += (buffer.get(from) & 0x3) == 0x3 ? 4 : 2;
+        }
+        return from;
+    }
+
+    /**
+     * A value cut off by the end of the file, the missing bytes read as zero.
+     */
+    private int tail(final int left, final int num) {
+        int ans = 0;
+        for (int i = Math.min(num, buffer.limit() - left) - 1; i >= 0; i--) {
+            ans = (ans << 8) | (buffer.get(left + i) & 0xff);
+        }
+        return ans;
+    }
+
+    public String getName(final int left) {
+        if (left < 0 || left >= buffer.limit()) {
+            throw new Error(String.format("string offset %d is outside the file", left));
+        }
+        int right = left;
+        while (right < buffer.limit() && buffer.get(right) != 0) {
+            right++;
+        }
+        final byte[] name = new byte[right - left];
+        buffer.get(left, name);
+        return new String(name, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,49 @@
+package disassembler;
+
+/**
+ * Width-specific layout of the ELF header, section headers and symbol entries. Values wider than
+ * 32 bits are narrowed to {@code int}: symbol values and sizes keep their low half, section
+ * addresses and offsets that do not fit are rejected.
+ */
+interface ElfReader {
+    static ElfReader of(final ElfInput input) {
+        if (input.size() < 16 || input.cnt(0, 4) != 0x464c457f) {
+            throw new Error("not an ELF file");
+        }
+        return switch (input.cnt(4, 1)) {
+            case 1 -> new Elf32Reader(input);
+            case 2 -> new Elf64Reader(input);
+            default -> throw new Error(String.format("unknown ELF class %d", input.cnt(4, 1)));
+        };
+    }
+
+    boolean is64();
+
+    int sectionHeaders();
+
+    int sectionHeaderSize();
+
+    int sectionCount();
+
+    int sectionNamesIndex();
+
+    /**
+     * @return the fields of the section header at {@code left} in {@link Section} constructor order.
+     */
+    int[] section(int left);
+
+    int symbolSize();
+
+    int symbolName(int left);
+
+    int symbolValue(int left);
+
+    int symbolSize(int left);
+
+    int symbolInfo(int left);
+
+    /**
+     * @return {@code st_other} in the low byte and {@code st_shndx} above it.
+     */
+    int symbolOther(int left);
+}
@@ -0,0 +1,169 @@
+package disassembler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instruction encodings as (mask, match) pairs in the style of the riscv-opcodes tables. They are written
+ * down independently of the decoder: {@link Fuzz} checks the decoder against them and {@link Search}
+ * compiles queries from them. In {@link #mnemonic} the first match wins, so reserved encodings that
+ * would otherwise match a wider entry come before it.
+ */
+final class Encodings {
+    protected static final Encodings RV32 = new Encodings();
+    protected static final Encodings RV64 = new Encodings();
+
+    private static final Field RD = new Field(7, 0x1f, 0);
+    private static final Field RS1 = new Field(15, 0x1f, 0);
+    private static final Field RS2 = new Field(20, 0x1f, 0);
+    private static final Field CSR = new Field(20, 0xfff, 0);
+    private static final Map<String, Field> NONE = Map.of();
+    private static final Map<String, Field> R = Map.of("rd", RD, "rs1", RS1, "rs2", RS2);
+    private static final Map<String, Field> I = Map.of("rd", RD, "rs1", RS1);
+    private static final Map<String, Field> S = Map.of("rs1", RS1, "rs2", RS2);
+    private static final Map<String, Field> U = Map.of("rd", RD);
+    private static final Map<String, Field> CSR_REGISTER = Map.of("rd", RD, "rs1", RS1, "csr", CSR);
+    private static final Map<String, Field> CSR_IMMEDIATE = Map.of("rd", RD, "csr", CSR);
+    private static final Field SP = new Field(0, 0, 2);
+    private static final Field ZERO = new Field(0, 0, 0);
+    private static final Field RD_PRIME = new Field(2, 0x7, 8);
+    private static final Field RS1_PRIME = new Field(7, 0x7, 8);
+    private static final Field RS2_PRIME = new Field(2, 0x7, 8);
+    private static final Map<String, Field> CL = Map.of("rd", RD_PRIME, "rs1", RS1_PRIME);
+    private static final Map<String, Field> CS = Map.of("rs1", RS1_PRIME, "rs2", RS2_PRIME);
+    private static final Map<String, Field> CI_SP = Map.of("rd", RD, "rs1", SP);
+    private static final Map<String, Field> CSS = Map.of("rs1", SP, "rs2", new Field(2, 0x1f, 0));
+    private static final Map<String, Field> CB = Map.of("rs1", RS1_PRIME, "rs2", ZERO);
+
+    static {
+        rv64(RV64);
+        rv32(RV64);
+        rv32(RV32);
+    }
+
+    private final List<String> names = new ArrayList<>();
+    private final List<int[]> encodings = new ArrayList<>();
+
+    private Encodings() {
+    }
+
+    private Encodings add(final String name, final int mask, final int match) {
+        names.add(name);
+        encodings.add(new int[]{mask, match});
+        return this;
+    }
+
+    protected String mnemonic(final int bits) {
+        for (int i = 0; i < encodings.size(); i++) {
+            if ((bits & encodings.get(i)[0]) == encodings.get(i)[1]) {
+                return names.get(i);
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * @return {mask, match} of the first entry named {@code name}, or {@code null}.
+     */
+    protected int[] encoding(final String name) {
+        final int i = names.indexOf(name);
+        return i < 0 || name.equals("unknown") ? null : encodings.get(i);
+    }
+
+    /**
+     * A register or CSR field of an instruction format: {@code width} is the field mask before the
+     * shift, {@code base} the number of the first register it can name ({@code x8} for the 3-bit
+     * fields of compressed formats). A zero width is a register the format implies, like {@code sp}
+     * of {@code c.lwsp}.
+     */
+    protected record Field(int shift, int width, int base) {
+        protected int mask() {
+            return width << shift;
+        }
+
+        /**
+         * @return the field bits naming {@code value}, or -1 if the field can't hold it.
+         */
+        protected int bits(final int value) {
+            return value - base >= 0 && value - base <= width ? (value - base) << shift : -1;
+        }
+    }
+
+    /**
+     * @return the fields of the format {@code name} is encoded in; instructions without register
+     * fields and the compressed ones outside the load, store and branch groups of {@link Search} have none.
+     */
+    protected static Map<String, Field> fields(final String name) {
+        return switch (name) {
+            case "lui", "auipc", "jal" -> U;
+            case "jalr", "lb", "lh", "lw", "lbu", "lhu", "lwu", "ld", "addi", "slti", "sltiu", "xori", "ori", "andi",
+                    "slli", "srli", "srai", "addiw", "slliw", "srliw", "sraiw" -> I;
+            case "beq", "bne", "blt", "bge", "bltu", "bgeu", "sb", "sh", "sw", "sd" -> S;
+            case "add", "sub", "sll", "slt", "sltu", "xor", "srl", "sra", "or", "and",
+                    "mul", "mulh", "mulhsu", "mulhu", "div", "divu", "rem", "remu",
+                    "addw", "subw", "sllw", "srlw", "sraw", "mulw", "divw", "divuw", "remw", "remuw" -> R;
+            case "csrrw", "csrrs", "csrrc" -> CSR_REGISTER;
+            case "csrrwi", "csrrsi", "csrrci" -> CSR_IMMEDIATE;
+            case "c.lw", "c.ld" -> CL;
+            case "c.sw", "c.sd" -> CS;
+            case "c.lwsp", "c.ldsp" -> CI_SP;
+            case "c.swsp", "c.sdsp" -> CSS;
+            case "c.beqz", "c.bnez" -> CB;
+            default -> NONE;
+        };
+    }
+
+    private static void rv64(final Encodings table) {
+        table.add("ld", 0x707f, 0x3003).add("lwu", 0x707f, 0x6003).add("sd", 0x707f, 0x3023)
+                .add("slli", 0xfc00707f, 0x1013).add("srli", 0xfc00707f, 0x5013).add("srai", 0xfc00707f, 0x40005013)
+                .add("addiw", 0x707f, 0x1b).add("slliw", 0xfe00707f, 0x101b)
+                .add("srliw", 0xfe00707f, 0x501b).add("sraiw", 0xfe00707f, 0x4000501b)
+                .add("addw", 0xfe00707f, 0x3b).add("subw", 0xfe00707f, 0x4000003b).add("sllw", 0xfe00707f, 0x103b)
+                .add("srlw", 0xfe00707f, 0x503b).add("sraw", 0xfe00707f, 0x4000503b)
+                .add("mulw", 0xfe00707f, 0x200003b).add("divw", 0xfe00707f, 0x200403b).add("divuw", 0xfe00707f, 0x200503b)
+                .add("remw", 0xfe00707f, 0x200603b).add("remuw", 0xfe00707f, 0x200703b)
+                .add("c.ld", 0xe003, 0x6000).add("c.sd", 0xe003, 0xe000)
+                .add("unknown", 0xef83, 0x2001).add("c.addiw", 0xe003, 0x2001)
+                .add("unknown", 0xef83, 0x6002).add("c.ldsp", 0xe003, 0x6002).add("c.sdsp", 0xe003, 0xe002)
+                .add("c.subw", 0xfc63, 0x9c01).add("c.addw", 0xfc63, 0x9c21);
+    }
+
+    private static void rv32(final Encodings table) {
+        table.add("lui", 0x7f, 0x37).add("auipc", 0x7f, 0x17).add("jal", 0x7f, 0x6f).add("jalr", 0x707f, 0x67)
+                .add("beq", 0x707f, 0x63).add("bne", 0x707f, 0x1063).add("blt", 0x707f, 0x4063)
+                .add("bge", 0x707f, 0x5063).add("bltu", 0x707f, 0x6063).add("bgeu", 0x707f, 0x7063)
+                .add("lb", 0x707f, 0x3).add("lh", 0x707f, 0x1003).add("lw", 0x707f, 0x2003)
+                .add("lbu", 0x707f, 0x4003).add("lhu", 0x707f, 0x5003)
+                .add("sb", 0x707f, 0x23).add("sh", 0x707f, 0x1023).add("sw", 0x707f, 0x2023)
+                .add("addi", 0x707f, 0x13).add("slti", 0x707f, 0x2013).add("sltiu", 0x707f, 0x3013)
+                .add("xori", 0x707f, 0x4013).add("ori", 0x707f, 0x6013).add("andi", 0x707f, 0x7013)
+                .add("slli", 0xfe00707f, 0x1013).add("srli", 0xfe00707f, 0x5013).add("srai", 0xfe00707f, 0x40005013)
+                .add("add", 0xfe00707f, 0x33).add("sub", 0xfe00707f, 0x40000033).add("sll", 0xfe00707f, 0x1033)
+                .add("slt", 0xfe00707f, 0x2033).add("sltu", 0xfe00707f, 0x3033).add("xor", 0xfe00707f, 0x4033)
+                .add("srl", 0xfe00707f, 0x5033).add("sra", 0xfe00707f, 0x40005033)
+                .add("or", 0xfe00707f, 0x6033).add("and", 0xfe00707f, 0x7033)
+                .add("mul", 0xfe00707f, 0x2000033).add("mulh", 0xfe00707f, 0x2001033)
+                .add("mulhsu", 0xfe00707f, 0x2002033).add("mulhu", 0xfe00707f, 0x2003033)
+                .add("div", 0xfe00707f, 0x2004033).add("divu", 0xfe00707f, 0x2005033)
+                .add("rem", 0xfe00707f, 0x2006033).add("remu", 0xfe00707f, 0x2007033)
+                .add("fence", 0x707f, 0xf).add("fence.i", 0x707f, 0x100f)
+                .add("ecall", 0xffffffff, 0x73).add("ebreak", 0xffffffff, 0x100073)
+                .add("csrrw", 0x707f, 0x1073).add("csrrs", 0x707f, 0x2073).add("csrrc", 0x707f, 0x3073)
+                .add("csrrwi", 0x707f, 0x5073).add("csrrsi", 0x707f, 0x6073).add("csrrci", 0x707f, 0x7073)
+                .add("unknown", 0xffe3, 0x0).add("c.addi4spn", 0xe003, 0x0)
+                .add("c.fld", 0xe003, 0x2000).add("c.lw", 0xe003, 0x4000).add("c.flw", 0xe003, 0x6000)
+                .add("c.fsd", 0xe003, 0xa000).add("c.sw", 0xe003, 0xc000).add("c.fsw", 0xe003, 0xe000)
+                .add("c.nop", 0xef83, 0x1).add("c.addi", 0xe003, 0x1).add("c.jal", 0xe003, 0x2001)
+                .add("c.li", 0xe003, 0x4001).add("unknown", 0xf07f, 0x6001).add("c.addi16sp", 0xef83, 0x6101)
+                .add("c.lui", 0xe003, 0x6001).add("c.srli", 0xec03, 0x8001).add("c.srai", 0xec03, 0x8401)
+                .add("c.andi", 0xec03, 0x8801).add("c.sub", 0xfc63, 0x8c01).add("c.xor", 0xfc63, 0x8c21)
+                .add("c.or", 0xfc63, 0x8c41).add("c.and", 0xfc63, 0x8c61)
+                .add("c.j", 0xe003, 0xa001).add("c.beqz", 0xe003, 0xc001).add("c.bnez", 0xe003, 0xe001)
+                .add("c.slli", 0xe003, 0x2).add("c.fldsp", 0xe003, 0x2002)
+                .add("unknown", 0xef83, 0x4002).add("c.lwsp", 0xe003, 0x4002).add("c.flwsp", 0xe003, 0x6002)
+                .add("unknown", 0xffff, 0x8002).add("c.jr", 0xf07f, 0x8002).add("c.mv", 0xf003, 0x8002)
+                .add("c.ebreak", 0xffff, 0x9002).add("c.jalr", 0xf07f, 0x9002).add("c.add", 0xf003, 0x9002)
+                .add("c.fsdsp", 0xe003, 0xa002).add("c.swsp", 0xe003, 0xc002).add("c.fswsp", 0xe003, 0xe002);
+    }
+}
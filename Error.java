@@ -1,6 +1,8 @@
 package disassembler;
 
 public class Error extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     protected Error(final String sectionName, final String message, final String cause) {
         super(String.format("%s while parsing \"%s\" section: %s", message, sectionName, cause));
     }
@@ -1,28 +1,35 @@
 package disassembler;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
-public class FileOutput {
-    private final BufferedWriter input;
+public class FileOutput extends ChannelOutput {
+    private final FileChannel channel;
     private final String fileName;
     public FileOutput(String fileName) throws IOException {
-        input = new BufferedWriter(new FileWriter(fileName, StandardCharsets.UTF_8));
+        this(FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), fileName);
+    }
+    private FileOutput(FileChannel channel, String fileName) {
+        super(channel);
+        this.channel = channel;
         this.fileName = fileName;
     }
     public void writeToFIle(String str) throws IOException {
-        input.write(str);
-    }
-    public void newLine() throws IOException {
-        input.newLine();
+        write(str);
+        flushIfFull();
     }
 
     public String retFileName() {
         return fileName;
     }
+    @Override
     public void close() throws IOException {
-        input.close();
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
     }
 }
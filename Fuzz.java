@@ -0,0 +1,364 @@
+package disassembler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Differential fuzzing of the decoder against a mask/match reference table, fuzzing of the parser with
+ * malformed ELF files and decode throughput on streams full of invalid encodings.
+ * Run as {@code java disassembler.Fuzz [quick] [seed]}; exits with status 1 on any mismatch, on any
+ * exception other than {@link Error} and when invalid input decodes less than half as fast as valid input.
+ */
+public class Fuzz {
+    private static final int MAX_REPORTS = 10;
+    private final Random random;
+    private final ByteBuffer word = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+    private final ElfInput input = new ElfInput(word);
+    private final Instruction ins = new Instruction();
+    private int failures;
+
+    private Fuzz(final long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) {
+        final boolean quick = args.length > 0 && args[0].equals("quick");
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        final int scale = quick ? 10 : 1;
+        final Fuzz fuzz = new Fuzz(seed);
+        fuzz.compressed(Encodings.RV32, false);
+        fuzz.compressed(Encodings.RV64, true);
+        fuzz.opcodes(Encodings.RV32, false, 32 / scale);
+        fuzz.opcodes(Encodings.RV64, true, 32 / scale);
+        fuzz.random(Encodings.RV32, false, 10_000_000 / scale);
+        fuzz.random(Encodings.RV64, true, 10_000_000 / scale);
+        fuzz.malformed(100_000 / scale);
+        fuzz.relocated(100 / scale);
+        fuzz.overlapping(100 / scale);
+        fuzz.parallel(40 / scale);
+        fuzz.vectorScan(10_000 / scale);
+        fuzz.throughput(1_000_000 / scale, quick ? 8 : 10);
+        System.out.printf("%d failure(s)%n", fuzz.failures);
+        if (fuzz.failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Every 16-bit parcel.
+     */
+    private void compressed(final Encodings reference, final boolean rv64) {
+        int checked = 0;
+        for (int half = 0; half < 0x10000; half++) {
+            if ((half & 0x3) != 0x3) {
+                check(reference, rv64, half);
+                checked++;
+            }
+        }
+        report("compressed " + (rv64 ? "RV64" : "RV32"), checked);
+    }
+
+    /**
+     * Every opcode, funct3 and funct7 combination, each with {@code samples} random register and immediate fields.
+     */
+    private void opcodes(final Encodings reference, final boolean rv64, final int samples) {
+        int checked = 0;
+        for (int opcode = 0b11; opcode < 0x80; opcode += 0b100) {
+            for (int funct3 = 0; funct3 < 8; funct3++) {
+                for (int funct7 = 0; funct7 < 0x80; funct7++) {
+                    for (int i = 0; i < samples; i++) {
+                        check(reference, rv64, (funct7 << 25) | (random.nextInt(1 << 10) << 15)
+                                | (funct3 << 12) | (random.nextInt(32) << 7) | opcode);
+                        checked++;
+                    }
+                }
+            }
+        }
+        report("opcode classes " + (rv64 ? "RV64" : "RV32"), checked);
+    }
+
+    private void random(final Encodings reference, final boolean rv64, final int count) {
+        for (int i = 0; i < count; i++) {
+            check(reference, rv64, random.nextInt());
+        }
+        report("random words " + (rv64 ? "RV64" : "RV32"), count);
+    }
+
+    private void check(final Encodings reference, final boolean rv64, final int bits) {
+        word.putInt(0, bits);
+        try {
+            if (rv64) {
+                Commands.decode64(input, 0, 0, ins);
+            } else {
+                Commands.decode(input, 0, 0, ins);
+            }
+        } catch (RuntimeException e) {
+            fail(String.format("0x%08x (%s): %s", bits, rv64 ? "RV64" : "RV32", e));
+            return;
+        }
+        final String expected = reference.mnemonic((bits & 0x3) == 0x3 ? bits : bits & 0xffff);
+        if (!expected.equals(ins.mnemonic)) {
+            fail(String.format("0x%08x (%s): decoded %s, reference %s", bits, rv64 ? "RV64" : "RV32", ins.mnemonic, expected));
+        }
+    }
+
+    /**
+     * Small valid images with random header, section header and symbol bytes overwritten or truncated.
+     * Anything but a clean run or an {@link Error} is a failure.
+     */
+    private void malformed(final int count) {
+        final byte[] original = Synthetic.elf(Synthetic.instructions("MIXED", 256, 1), 16, 1).array();
+        final OutputBuffer discard = new OutputBuffer(1 << 17) {
+            @Override
+            public void flush() {
+                clear();
+            }
+        };
+        int rejected = 0;
+        for (int i = 0; i < count; i++) {
+            final byte[] elf = mutate(original);
+            try {
+                new Parser(new ElfInput(ByteBuffer.wrap(elf)), discard).disassemble();
+            } catch (Error e) {
+                rejected++;
+            } catch (Exception | StackOverflowError e) {
+                fail(String.format("malformed ELF #%d: %s", i, e));
+            }
+            discard.clear();
+        }
+        report(String.format("malformed ELF (%d rejected)", rejected), count);
+    }
+
+    private byte[] mutate(final byte[] original) {
+        final int shoff = ByteBuffer.wrap(original).order(ByteOrder.LITTLE_ENDIAN).getInt(32);
+        byte[] elf = original.clone();
+        for (int n = 1 + random.nextInt(4); n > 0; n--) {
+            switch (random.nextInt(5)) {
+                case 0 -> elf[random.nextInt(52)] ^= (byte) (1 << random.nextInt(8));
+                case 1 -> putInt(elf, shoff + 4 * random.nextInt(Math.max(1, (elf.length - shoff) / 4)), interesting(elf.length));
+                case 2 -> putInt(elf, 4 * random.nextInt(13), interesting(elf.length));
+                case 3 -> elf[random.nextInt(elf.length)] = (byte) random.nextInt(256);
+                default -> elf = Arrays.copyOf(elf, random.nextInt(elf.length));
+            }
+            if (elf.length < 52) {
+                return elf;
+            }
+        }
+        return elf;
+    }
+
+    private int interesting(final int size) {
+        return switch (random.nextInt(6)) {
+            case 0 -> 0;
+            case 1 -> -1;
+            case 2 -> size;
+            case 3 -> size - 1 - random.nextInt(64);
+            case 4 -> Integer.MAX_VALUE;
+            default -> random.nextInt();
+        };
+    }
+
+    private static void putInt(final byte[] elf, final int left, final int value) {
+        if (left >= 0 && left + 4 <= elf.length) {
+            ByteBuffer.wrap(elf).order(ByteOrder.LITTLE_ENDIAN).putInt(left, value);
+        }
+    }
+
+    /**
+     * Random images with {@code .text} at the usual address and above {@code 0x80000000}; both have to
+     * get the same labels, none of them negative.
+     */
+    private void relocated(final int count) {
+        for (int i = 0; i < count; i++) {
+            final int[] words = Synthetic.instructions("MIXED", 1024, random.nextLong());
+            final long seed = random.nextLong();
+            for (int base : new int[]{0x80000000, 0xc0000000 + 4 * random.nextInt(1 << 20)}) {
+                try {
+                    final String low = disassemble(Synthetic.elf(words, 16, seed));
+                    final String high = disassemble(Synthetic.elf(words, 16, seed, base));
+                    if (labels(high) != labels(low) || high.contains("<L-")) {
+                        fail(String.format("image #%d at 0x%08x: %d labels, %d at 0x%08x", i, base, labels(high),
+                                labels(low), Synthetic.TEXT_ADDR));
+                    }
+                } catch (Exception e) {
+                    fail(String.format("image #%d at 0x%08x: %s", i, base, e));
+                }
+            }
+        }
+        report("relocated images", count);
+    }
+
+    /**
+     * Objects with two code sections at address 0, as with {@code -ffunction-sections}: each section
+     * has to be listed with the labels of its own branches only, exactly as in an object of its own.
+     */
+    private void overlapping(final int count) {
+        for (int i = 0; i < count; i++) {
+            final int[] a = Synthetic.instructions("MIXED", 256, random.nextLong());
+            final int[] b = Synthetic.instructions("MIXED", 256, random.nextLong());
+            final String[] names = i % 2 == 0 ? new String[]{".text.a", ".text.b"} : new String[]{".text", ".text"};
+            try {
+                final String both = code(disassemble(Synthetic.object(names, new int[][]{a, b})));
+                final String apart = code(disassemble(Synthetic.object(new String[]{names[0]}, new int[][]{a})))
+                        + code(disassemble(Synthetic.object(new String[]{names[1]}, new int[][]{b})));
+                if (!both.equals(apart)) {
+                    fail(String.format("object #%d with %s and %s: listing differs from the sections on their own",
+                            i, names[0], names[1]));
+                }
+            } catch (Exception e) {
+                fail(String.format("object #%d: %s", i, e));
+            }
+        }
+        report("overlapping sections", count);
+    }
+
+    /**
+     * {@code --parallel} has to write exactly what the serial run writes: images of a few 64 KiB chunks
+     * whose branches cross chunk boundaries, valid or full of random parcels, in text, JSON and with
+     * {@code --xref}, on 2 to 4 threads.
+     */
+    private void parallel(final int count) {
+        for (int i = 0; i < count; i++) {
+            final int[] words = Synthetic.instructions("MIXED", 40_000, random.nextLong());
+            if (i % 2 == 1) {
+                for (int j = 0; j < words.length; j++) {
+                    words[j] = random.nextInt(4) == 0 ? random.nextInt() : words[j];
+                }
+            }
+            final ByteBuffer elf = Synthetic.elf(words, words.length / 50, random.nextLong());
+            final OutputFormat format = i % 3 == 2 ? OutputFormat.JSON : OutputFormat.TEXT;
+            final boolean xref = i % 4 >= 2;
+            final int threads = 2 + i % 3;
+            try {
+                final String serial = disassemble(elf, new Disassembler.Options().format(format).xref(xref));
+                final String parallel = disassemble(elf, new Disassembler.Options().format(format).xref(xref).parallelism(threads));
+                if (!serial.equals(parallel)) {
+                    fail(String.format("image #%d, %s%s on %d threads: parallel output differs from the serial one",
+                            i, format, xref ? " with xref" : "", threads));
+                }
+            } catch (Exception e) {
+                fail(String.format("image #%d: %s", i, e));
+            }
+        }
+        report("parallel images", count);
+    }
+
+    private static String disassemble(final ByteBuffer elf, final Disassembler.Options options) throws IOException {
+        final StringBuilder out = new StringBuilder();
+        Disassembler.disassemble(elf, out, options);
+        return out.toString();
+    }
+
+    private static String code(final String text) {
+        return text.substring(0, text.indexOf("\n.symtab\n"));
+    }
+
+    /**
+     * {@link ElfInput#find} on the Vector API against the scalar loop: every match of a pattern in
+     * random ranges of buffers whose bytes repeat often enough that most patterns match somewhere.
+     */
+    private void vectorScan(final int count) {
+        if (!ElfInput.VECTOR) {
+            System.out.printf("%-36s %14s%n", "vector scan", "skipped, needs --add-modules jdk.incubator.vector");
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            final byte[] bytes = new byte[2 + random.nextInt(4096)];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = (byte) (random.nextInt(4) * 0x41);
+            }
+            final ElfInput scan = new ElfInput(ByteBuffer.wrap(bytes));
+            final int mask = random.nextBoolean() ? random.nextInt() & 0xffff : random.nextInt();
+            final int value = scan.word(2 * random.nextInt(bytes.length / 2)) & mask;
+            final int to = bytes.length - random.nextInt(Math.min(bytes.length, 16));
+            final int from = 2 * random.nextInt(to / 2 + 1);
+            final int end = Math.min(to, from + 2 * random.nextInt(1024));
+            for (int left = from, scalar = from; left < end || scalar < end; left += 2, scalar += 2) {
+                left = scan.find(left, end, to, mask, value);
+                scalar = scan.findScalar(scalar, end, to, mask, value);
+                if (left != scalar) {
+                    fail(String.format("buffer #%d: mask 0x%08x value 0x%08x in [%d, %d) up to %d: vector %d, scalar %d",
+                            i, mask, value, from, end, to, left, scalar));
+                    break;
+                }
+            }
+        }
+        report("vector scan, " + VectorScan.LANES + " lanes", count);
+    }
+
+    private static String disassemble(final ByteBuffer elf) throws IOException {
+        final OutputBuffer out = new OutputBuffer(1 << 16);
+        new Parser(new ElfInput(elf), out).disassemble();
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static int labels(final String text) {
+        int count = 0;
+        for (int i = text.indexOf(">:\n"); i >= 0; i = text.indexOf(">:\n", i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Decodes and renders a valid stream, an all-random stream and a half-and-half stream; the invalid
+     * ones go through the {@code unknown} path and have to keep at least half the valid throughput.
+     * Every rate is that of the fastest measured pass, so a busy machine slows down one pass rather
+     * than fail the check.
+     */
+    private void throughput(final int count, final int iterations) {
+        final int[] valid = Synthetic.instructions("MIXED", count, 1);
+        final int[] invalid = new int[count];
+        final int[] mixed = new int[count];
+        for (int i = 0; i < count; i++) {
+            invalid[i] = random.nextInt() | 0x3;
+            mixed[i] = random.nextBoolean() ? valid[i] : invalid[i];
+        }
+        final double base = decodeRate("valid", valid, iterations);
+        for (int[] words : new int[][]{invalid, mixed}) {
+            final String name = words == invalid ? "invalid" : "half invalid";
+            final double rate = decodeRate(name, words, iterations);
+            if (rate < base / 2) {
+                fail(String.format("%s stream decodes at %.0f/s, valid at %.0f/s", name, rate, base));
+            }
+        }
+    }
+
+    private double decodeRate(final String name, final int[] words, final int iterations) {
+        final ElfInput text = new ElfInput(Synthetic.elf(words, 0, 1));
+        final Commands commands = new Commands(new IntIndex(16), new SymbolTable(null, 0));
+        int unknown = 0;
+        long sink = 0;
+        long fastest = Long.MAX_VALUE;
+        for (int iteration = -iterations; iteration < iterations; iteration++) {
+            final long start = System.nanoTime();
+            unknown = 0;
+            for (int i = 0, left = 52; i < words.length; i++, left += 4) {
+                final String[] tokens = commands.parseCommand(text, left, Synthetic.TEXT_ADDR + 4 * i).first();
+                unknown += tokens[0].equals("unknown") ? 1 : 0;
+                sink += tokens.length;
+            }
+            if (iteration >= 0) {
+                fastest = Math.min(fastest, System.nanoTime() - start);
+            }
+        }
+        final double rate = words.length / (fastest / 1e9);
+        System.out.printf("%-36s %14.0f instructions/s, %5.1f%% unknown%s%n", "throughput " + name, rate,
+                100.0 * unknown / words.length, sink == 0 ? "!" : "");
+        return rate;
+    }
+
+    private void report(final String name, final int checked) {
+        System.out.printf("%-36s %14d checked%n", name, checked);
+    }
+
+    private void fail(final String message) {
+        if (failures++ < MAX_REPORTS) {
+            System.out.println("FAIL " + message);
+        }
+    }
+}
\ No newline at end of file
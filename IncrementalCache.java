@@ -0,0 +1,126 @@
+package disassembler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rendered output of code regions from the previous run, keyed by the SHA-256 digest of everything the
+ * rendering depends on, so the file holds the output and 32 bytes per region, not a copy of the code.
+ * Only the entries used by the current run are saved back.
+ */
+public class IncrementalCache {
+    private static final int MAGIC = 0x52564932;
+    private static final int KEY_LENGTH = 32;
+    private final Path file;
+    private final Map<ByteBuffer, byte[]> previous;
+    private final Map<ByteBuffer, byte[]> current = new ConcurrentHashMap<>();
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger rendered = new AtomicInteger();
+
+    private IncrementalCache(final Path file, final Map<ByteBuffer, byte[]> previous) {
+        this.file = file;
+        this.previous = previous;
+    }
+
+    /**
+     * A missing, unreadable or inconsistent file gives an empty cache, the run then renders everything.
+     */
+    public static IncrementalCache load(final Path file) {
+        final Map<ByteBuffer, byte[]> entries = new HashMap<>();
+        try {
+            final ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (in.remaining() >= 8 && in.getInt() == MAGIC) {
+                for (int count = in.getInt(); count > 0; count--) {
+                    final byte[] key = chunk(in);
+                    final byte[] bytes = chunk(in);
+                    if (key == null || key.length != KEY_LENGTH || bytes == null) {
+                        entries.clear();
+                        break;
+                    }
+                    entries.put(ByteBuffer.wrap(key), bytes);
+                }
+                if (in.hasRemaining()) {
+                    entries.clear();
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return new IncrementalCache(file, entries);
+        } catch (IOException e) {
+            entries.clear();
+        }
+        return new IncrementalCache(file, entries);
+    }
+
+    /**
+     * @return the next length-prefixed byte string, or {@code null} if its length doesn't fit the rest of the file.
+     */
+    private static byte[] chunk(final ByteBuffer in) {
+        final int length = in.remaining() >= 4 ? in.getInt() : -1;
+        if (length < 0 || length > in.remaining()) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the key of a region whose rendering depends on exactly {@code inputs}.
+     */
+    protected static ByteBuffer key(final byte[] inputs) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(inputs));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected byte[] get(final ByteBuffer key) {
+        final byte[] bytes = previous.get(key);
+        if (bytes != null) {
+            reused.incrementAndGet();
+            current.put(key, bytes);
+        }
+        return bytes;
+    }
+
+    protected void put(final ByteBuffer key, final byte[] bytes) {
+        rendered.incrementAndGet();
+        current.put(key, bytes);
+    }
+
+    public int reused() {
+        return reused.get();
+    }
+
+    public int rendered() {
+        return rendered.get();
+    }
+
+    public void save() throws IOException {
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(current.size());
+            for (Map.Entry<ByteBuffer, byte[]> entry : current.entrySet()) {
+                out.writeInt(entry.getKey().remaining());
+                out.write(entry.getKey().array(), entry.getKey().arrayOffset(), entry.getKey().remaining());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
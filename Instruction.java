@@ -0,0 +1,77 @@
+package disassembler;
+
+/**
+ * Decoded fields of one instruction, filled in place by {@link Commands#decode} so a single instance
+ * can be reused for a whole section. {@code layout} says which operands are present and how the
+ * text form prints them.
+ */
+public class Instruction {
+    protected static final int NONE = 0;
+    protected static final int R = 1;
+    protected static final int B = 2;
+    protected static final int LOAD = 3;
+    protected static final int STORE = 4;
+    protected static final int RI = 5;
+    protected static final int CSR = 6;
+    protected static final int RRI = 7;
+    protected static final int J = 8;
+    protected static final int CJ = 9;
+    protected static final int CB = 10;
+    protected static final int RR = 11;
+    protected static final int JR = 12;
+    protected static final int CSRI = 13;
+    protected static final int WORD = 14;
+
+    protected static final int RD = 1;
+    protected static final int RS1 = 2;
+    protected static final int RS2 = 4;
+    protected static final int IMM = 8;
+    protected static final int TARGET = 16;
+    /**
+     * Operands used by every layout, as a mask of {@code RD}, {@code RS1}, {@code RS2}, {@code IMM} and {@code TARGET}.
+     */
+    protected static final int[] OPERANDS = {
+            0,
+            RD | RS1 | RS2,
+            RS1 | RS2 | IMM | TARGET,
+            RD | RS1 | IMM,
+            RS1 | RS2 | IMM,
+            RD | IMM,
+            RD | RS1 | IMM,
+            RD | RS1 | IMM,
+            RD | IMM | TARGET,
+            IMM | TARGET,
+            RS1 | IMM | TARGET,
+            RD | RS2,
+            RS1,
+            RD | RS1 | IMM,
+            0
+    };
+
+    protected int addr, word, length;
+    protected String mnemonic;
+    protected int layout;
+    protected int rd, rs1, rs2, imm;
+    protected boolean floating;
+
+    protected void set(final String mnemonic, final int layout, final int rd, final int rs1, final int rs2, final int imm) {
+        this.mnemonic = mnemonic;
+        this.layout = layout;
+        this.rd = rd;
+        this.rs1 = rs1;
+        this.rs2 = rs2;
+        this.imm = imm;
+        this.floating = false;
+    }
+
+    protected boolean has(final int operand) {
+        return (OPERANDS[layout] & operand) != 0;
+    }
+
+    /**
+     * Absolute branch or jump target, meaningful only when the layout has {@code TARGET}.
+     */
+    protected int target() {
+        return addr + imm;
+    }
+}
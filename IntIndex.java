@@ -0,0 +1,78 @@
+package disassembler;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing {@code int -> int} map for non-negative values, used to find symbols and labels by address
+ * without boxing. Safe for concurrent readers once nobody writes to it.
+ */
+public class IntIndex {
+    private static final int ABSENT = -1;
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public IntIndex(final int expected) {
+        int capacity = 16;
+        while (capacity < 2 * expected) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    public int get(final int key) {
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (values[slot] == ABSENT || keys[slot] == key) {
+                return values[slot];
+            }
+        }
+    }
+
+    public boolean containsKey(final int key) {
+        return get(key) != ABSENT;
+    }
+
+    public void put(final int key, final int value) {
+        int slot = hash(key) & mask;
+        while (values[slot] != ABSENT && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == ABSENT) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (2 * size > keys.length) {
+            rehash();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash() {
+        final int[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(2 * oldKeys.length);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+        mask = capacity - 1;
+    }
+
+    private static int hash(final int key) {
+        final int h = key * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
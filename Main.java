@@ -1,7 +1,193 @@
 package disassembler;
 
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
 public class Main {
     public static void main(String[] args) {
-        new Parser(args[1], args[2]).parse(args[2]);
+        if (args.length > 1 && args[1].equals("--batch")) {
+            batch(args);
+            return;
+        }
+        if (args.length > 1 && args[1].equals("--server")) {
+            server(args);
+            return;
+        }
+        run(args, Paths.get(""), new FileInputStream(FileDescriptor.in).getChannel(),
+                new FileOutputStream(FileDescriptor.out).getChannel(), System.out, System.err);
+    }
+
+    /**
+     * Runs one command line with relative paths resolved against {@code cwd}. {@code stdin} and {@code stdout}
+     * stand for "-" and are not closed; status lines go to {@code out}, or to {@code err} when the output is "-".
+     * {@link Server} calls this for every client request.
+     */
+    static void run(final String[] args, final Path cwd, final ReadableByteChannel stdin, final WritableByteChannel stdout,
+                    final PrintStream out, final PrintStream err) {
+        int parallelism = 1;
+        OutputFormat format = OutputFormat.TEXT;
+        IncrementalCache incremental = null;
+        Metrics metrics = null;
+        String metricsFile = null;
+        boolean xref = false;
+        final List<String> searches = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].equals("--parallel")) {
+                parallelism = Runtime.getRuntime().availableProcessors();
+            } else if (args[i].startsWith("--parallel=")) {
+                parallelism = Integer.parseInt(args[i].substring("--parallel=".length()));
+            } else if (args[i].startsWith("--incremental=")) {
+                incremental = IncrementalCache.load(cwd.resolve(args[i].substring("--incremental=".length())));
+            } else if (args[i].equals("--metrics")) {
+                metrics = new Metrics(args[1]);
+            } else if (args[i].startsWith("--metrics=")) {
+                metrics = new Metrics(args[1]);
+                metricsFile = args[i].substring("--metrics=".length());
+            } else if (args[i].startsWith("--format=")) {
+                format = OutputFormat.parse(args[i].substring("--format=".length()));
+            } else if (args[i].equals("--xref")) {
+                xref = true;
+            } else if (args[i].startsWith("--search=")) {
+                searches.add(args[i].substring("--search=".length()));
+            } else {
+                throw new Error(String.format("unknown option \"%s\"", args[i]));
+            }
+        }
+        final Search search = searches.isEmpty() ? null : new Search(searches);
+        if (search != null && (incremental != null || metrics != null || xref)) {
+            throw new Error("--search can't be combined with --incremental, --metrics or --xref");
+        }
+        final Disassembler.Options options = new Disassembler.Options().parallelism(parallelism).format(format)
+                .incremental(incremental).metrics(metrics).xref(xref);
+        final int found;
+        if (args[1].equals("-") || args[2].equals("-")) {
+            found = stream(args[1].equals("-") ? "-" : cwd.resolve("src/" + args[1]).toString(), args[2].equals("-") ? "-"
+                    : cwd.resolve(args[2]).toString(), stdin, stdout, options, search);
+        } else if (search != null) {
+            found = Disassembler.search(cwd.resolve("src/" + args[1]).toString(), cwd.resolve(args[2]).toString(), format, search);
+        } else {
+            Disassembler.disassemble(cwd.resolve("src/" + args[1]).toString(), cwd.resolve(args[2]).toString(), options);
+            found = 0;
+        }
+        final PrintStream status = args[2].equals("-") ? err : out;
+        if (search != null) {
+            status.printf("Found %d matches, you can see them in  \"%s\"%n", found, args[2]);
+            return;
+        }
+        if (incremental != null) {
+            try {
+                incremental.save();
+            } catch (IOException e) {
+                throw new Error(String.format("Couldn't save incremental cache: %s", e.getMessage()));
+            }
+            status.printf("Reused %d regions, decoded %d%n", incremental.reused(), incremental.rendered());
+        }
+        if (metricsFile != null) {
+            try {
+                Files.writeString(cwd.resolve(metricsFile), metrics.toJson() + System.lineSeparator());
+            } catch (IOException e) {
+                throw new Error(String.format("Couldn't write metrics to \"%s\"", metricsFile));
+            }
+        } else if (metrics != null) {
+            err.println(metrics.toJson());
+        }
+        status.printf("Everything's good, you can see the result in  \"%s\"%n", args[2]);
+    }
+
+    /**
+     * "-" as the input reads the ELF file from {@code stdin}, "-" as the output writes to {@code stdout}.
+     *
+     * @return the number of matches with a non-null {@code search}, 0 otherwise.
+     */
+    private static int stream(final String fileIn, final String fileOut, final ReadableByteChannel stdin,
+                              final WritableByteChannel stdout, final Disassembler.Options options, final Search search) {
+        ReadableByteChannel in = stdin;
+        WritableByteChannel out = stdout;
+        try {
+            if (!fileIn.equals("-")) {
+                in = FileChannel.open(Paths.get(fileIn), StandardOpenOption.READ);
+            }
+            if (!fileOut.equals("-")) {
+                out = FileChannel.open(Paths.get(fileOut), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            if (search != null) {
+                return Disassembler.search(in, out, options.format(), search);
+            }
+            Disassembler.disassemble(in, out, options);
+            return 0;
+        } catch (IOException e) {
+            throw new Error(String.format("Couldn't stream \"%s\" to \"%s\": %s", fileIn, fileOut, e.getMessage()));
+        } finally {
+            close(in, stdin);
+            close(out, stdout);
+        }
+    }
+
+    private static void close(final Channel channel, final Channel std) {
+        try {
+            if (channel != std) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new Error(String.format("Couldn't close file: %s", e.getMessage()));
+        }
+    }
+
+    private static void server(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean virtual = false;
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].startsWith("--threads=")) {
+                threads = Integer.parseInt(args[i].substring("--threads=".length()));
+            } else if (args[i].equals("--virtual")) {
+                virtual = true;
+            } else {
+                throw new Error(String.format("unknown option \"%s\"", args[i]));
+            }
+        }
+        try {
+            new Server(args[2]).run(threads, virtual);
+        } catch (IOException e) {
+            throw new Error(String.format("server \"%s\": %s", args[2], e.getMessage()));
+        }
+    }
+
+    private static void batch(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean virtual = false;
+        final List<String> searches = new ArrayList<>();
+        for (int i = 4; i < args.length; i++) {
+            if (args[i].startsWith("--threads=")) {
+                threads = Integer.parseInt(args[i].substring("--threads=".length()));
+            } else if (args[i].equals("--virtual")) {
+                virtual = true;
+            } else if (args[i].startsWith("--search=")) {
+                searches.add(args[i].substring("--search=".length()));
+            } else {
+                throw new Error(String.format("unknown option \"%s\"", args[i]));
+            }
+        }
+        try {
+            final Batch batch = new Batch(Batch.collect(args[2]), args[3], searches.isEmpty() ? null : new Search(searches));
+            if (!batch.run(threads, virtual)) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            throw new Error(String.format("batch \"%s\": %s", args[2], e.getMessage()));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package disassembler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Timings and counters of one run, collected only when a parser is given an instance, so a normal run
+ * pays a null check per phase and per chunk. Phases and the final summary are also emitted as JFR events,
+ * which are recorded when a flight recording with them enabled is running.
+ */
+public class Metrics {
+    protected static final int HEADER = 0;
+    protected static final int SYMTAB = 1;
+    protected static final int LABELS = 2;
+    protected static final int TEXT = 3;
+    protected static final int SYMTAB_DUMP = 4;
+    private static final String[] PHASES = {"header", "symtab", "labels", "text", "symtabDump"};
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private final String input;
+    private final long[] nanos = new long[PHASES.length];
+    private final LongAdder instructions = new LongAdder();
+    private final LongAdder allocated = new LongAdder();
+    private int current = -1;
+    private long since;
+    private long sinceAllocated;
+    private PhaseEvent event;
+    private long bytesWritten;
+    private int labels;
+    private int symbols;
+    private long[] cache = new long[3];
+    private IncrementalCache incremental;
+
+    public Metrics(final String input) {
+        this.input = input;
+        // Registers the event classes with JFR here rather than inside the first timed phase.
+        event = new PhaseEvent();
+        new RunEvent();
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads instanceof com.sun.management.ThreadMXBean hotspot && hotspot.isThreadAllocatedMemorySupported() ? hotspot : null;
+    }
+
+    /**
+     * Ends the running phase and starts {@code next}; -1 only ends it. Called from the thread that drives the run.
+     */
+    protected void phase(final int next) {
+        final long now = System.nanoTime();
+        if (current >= 0) {
+            nanos[current] += now - since;
+            event.commit();
+        } else {
+            sinceAllocated = threadAllocated();
+        }
+        current = next;
+        since = now;
+        if (next >= 0) {
+            event = new PhaseEvent();
+            event.phase = PHASES[next];
+            event.begin();
+        } else {
+            allocated.add(threadAllocated() - sinceAllocated);
+        }
+    }
+
+    protected void instructions(final int count) {
+        instructions.add(count);
+    }
+
+    /**
+     * @return bytes allocated so far by the current thread, 0 if the JVM does not count them.
+     */
+    protected long threadAllocated() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Adds what a pool task allocated since {@code start}, a value of {@link #threadAllocated()}.
+     */
+    protected void allocatedSince(final long start) {
+        allocated.add(threadAllocated() - start);
+    }
+
+    protected void finish(final long bytesWritten, final int labels, final int symbols, final long[] cache,
+                          final IncrementalCache incremental) {
+        phase(-1);
+        this.bytesWritten = bytesWritten;
+        this.labels = labels;
+        this.symbols = symbols;
+        this.cache = cache;
+        this.incremental = incremental;
+        final RunEvent run = new RunEvent();
+        if (run.shouldCommit()) {
+            run.input = input;
+            run.instructions = instructions.sum();
+            run.bytesWritten = bytesWritten;
+            run.labels = labels;
+            run.cacheHits = cache[0];
+            run.cacheMisses = cache[1];
+            run.allocated = allocated.sum();
+            run.commit();
+        }
+    }
+
+    public long totalNanos() {
+        long total = 0;
+        for (long phase : nanos) {
+            total += phase;
+        }
+        return total;
+    }
+
+    /**
+     * One-line JSON summary of the run.
+     */
+    public String toJson() {
+        final StringBuilder json = new StringBuilder("{\"input\":");
+        final OutputBuffer name = new OutputBuffer(input.length() + 2);
+        StructuredOutput.writeJsonString(name, input);
+        json.append(new String(name.toByteArray(), StandardCharsets.UTF_8)).append(",\"phasesMs\":{");
+        for (int i = 0; i < PHASES.length; i++) {
+            json.append(i == 0 ? "\"" : ",\"").append(PHASES[i]).append("\":").append(millis(nanos[i]));
+        }
+        final long total = totalNanos();
+        final long decoded = instructions.sum();
+        final long lookups = cache[0] + cache[1];
+        json.append("},\"totalMs\":").append(millis(total))
+                .append(",\"instructions\":").append(decoded)
+                .append(",\"instructionsPerSecond\":").append(nanos[TEXT] == 0 ? 0 : Math.round(decoded * 1e9 / nanos[TEXT]))
+                .append(",\"bytesWritten\":").append(bytesWritten)
+                .append(",\"labels\":").append(labels)
+                .append(",\"symbols\":").append(symbols)
+                .append(",\"decodeCache\":{\"hits\":").append(cache[0])
+                .append(",\"misses\":").append(cache[1])
+                .append(",\"bypasses\":").append(cache[2])
+                .append(",\"hitRate\":").append(String.format(Locale.ROOT, "%.4f", lookups == 0 ? 0.0 : (double) cache[0] / lookups))
+                .append('}');
+        if (incremental != null) {
+            json.append(",\"incremental\":{\"reused\":").append(incremental.reused())
+                    .append(",\"rendered\":").append(incremental.rendered()).append('}');
+        }
+        return json.append(",\"allocatedBytes\":").append(THREADS == null ? -1 : allocated.sum()).append('}').toString();
+    }
+
+    private static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    @Name("disassembler.Phase")
+    @Label("Disassembler Phase")
+    @Category("Disassembler")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("disassembler.Run")
+    @Label("Disassembler Run")
+    @Category("Disassembler")
+    static class RunEvent extends Event {
+        @Label("Input")
+        String input;
+        @Label("Instructions")
+        long instructions;
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+        @Label("Labels")
+        int labels;
+        @Label("Decode Cache Hits")
+        long cacheHits;
+        @Label("Decode Cache Misses")
+        long cacheMisses;
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+}
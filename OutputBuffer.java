@@ -0,0 +1,205 @@
+package disassembler;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class OutputBuffer {
+    protected static final int CHUNK = 1 << 16;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+    private static final byte[] UPPER_HEX_DIGITS = "0123456789ABCDEF".getBytes();
+    private final byte[] scratch = new byte[11];
+    protected byte[] buffer;
+    protected int length;
+    private long cleared;
+
+    public OutputBuffer(final int capacity) {
+        buffer = new byte[capacity];
+    }
+
+    public void write(final String str) {
+        final int len = str.length();
+        ensure(3 * len);
+        for (int i = 0; i < len; i++) {
+            final char c = str.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xc0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3f));
+            } else {
+                buffer[length++] = (byte) (0xe0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    public void write(final char c) {
+        ensure(1);
+        buffer[length++] = (byte) c;
+    }
+
+    public void write(final OutputBuffer other) {
+        ensure(other.length);
+        System.arraycopy(other.buffer, 0, buffer, length, other.length);
+        length += other.length;
+    }
+
+    public void write(final byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Same as {@code %Ns} for positive width and {@code %-Ns} for negative one.
+     */
+    public void writePadded(final String str, final int width) {
+        final int pad = Math.abs(width) - str.length();
+        if (width > 0) {
+            spaces(pad);
+        }
+        write(str);
+        if (width < 0) {
+            spaces(pad);
+        }
+    }
+
+    /**
+     * Same as {@code %0Nx}.
+     */
+    public void writeHex(final int value, final int digits) {
+        final int len = toHex(value, HEX_DIGITS);
+        ensure(Math.max(digits, len));
+        for (int i = len; i < digits; i++) {
+            buffer[length++] = '0';
+        }
+        copyScratch(len);
+    }
+
+    /**
+     * Same as {@code %NX} for positive width and {@code %-NX} for negative one.
+     */
+    public void writeUpperHex(final int value, final int width) {
+        copyPadded(toHex(value, UPPER_HEX_DIGITS), width);
+    }
+
+    /**
+     * Same as {@code %Nd} for positive width and {@code %-Nd} for negative one.
+     */
+    public void writeDec(final int value, final int width) {
+        copyPadded(toDec(value), width);
+    }
+
+    public void writeUnsigned(final int value) {
+        copyPadded(toDec(Integer.toUnsignedLong(value)), 0);
+    }
+
+    public void writeByte(final int value) {
+        ensure(1);
+        buffer[length++] = (byte) value;
+    }
+
+    public void writeShortLE(final int value) {
+        ensure(2);
+        buffer[length++] = (byte) value;
+        buffer[length++] = (byte) (value >>> 8);
+    }
+
+    public void writeIntLE(final int value) {
+        ensure(4);
+        buffer[length++] = (byte) value;
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 24);
+    }
+
+    public void newLine() {
+        write('\n');
+    }
+
+    public void flushIfFull() throws IOException {
+        if (length >= CHUNK) {
+            flush();
+        }
+    }
+
+    public void flush() throws IOException {
+    }
+
+    public void close() throws IOException {
+        flush();
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void clear() {
+        cleared += length;
+        length = 0;
+    }
+
+    /**
+     * @return bytes written since the buffer was created, flushed or not.
+     */
+    public long written() {
+        return cleared + length;
+    }
+
+    protected void ensure(final int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private void spaces(final int count) {
+        if (count > 0) {
+            ensure(count);
+            Arrays.fill(buffer, length, length + count, (byte) ' ');
+            length += count;
+        }
+    }
+
+    private void copyPadded(final int len, final int width) {
+        if (width > 0) {
+            spaces(width - len);
+        }
+        ensure(len);
+        copyScratch(len);
+        if (width < 0) {
+            spaces(-width - len);
+        }
+    }
+
+    private void copyScratch(final int len) {
+        System.arraycopy(scratch, scratch.length - len, buffer, length, len);
+        length += len;
+    }
+
+    private int toHex(int value, final byte[] digits) {
+        int pos = scratch.length;
+        do {
+            scratch[--pos] = digits[value & 0xf];
+            value >>>= 4;
+        } while (value != 0);
+        return scratch.length - pos;
+    }
+
+    private int toDec(final long value) {
+        long rest = Math.abs(value);
+        int pos = scratch.length;
+        do {
+            scratch[--pos] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        if (value < 0) {
+            scratch[--pos] = '-';
+        }
+        return scratch.length - pos;
+    }
+}
@@ -0,0 +1,25 @@
+package disassembler;
+
+public enum OutputFormat {
+    /**
+     * Human-readable {@code .text} and {@code .symtab} listing.
+     */
+    TEXT,
+    /**
+     * One JSON object per instruction, then one per symbol.
+     */
+    JSON,
+    /**
+     * Fixed-size little-endian instruction records, see {@link StructuredOutput}.
+     */
+    BINARY;
+
+    public static OutputFormat parse(final String name) {
+        return switch (name) {
+            case "text" -> TEXT;
+            case "json" -> JSON;
+            case "binary" -> BINARY;
+            default -> throw new Error(String.format("unknown output format \"%s\"", name));
+        };
+    }
+}
@@ -1,354 +1,65 @@
 package disassembler;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
-import static disassembler.Commands.decToBin;
-
-record AnswerPair<First, Second>(First first, Second second) {
-    @Override
-    public String toString() {
-        return String.format("%s %s", first, second);
-    }
-}
-
-class RISCV {
-    private RISCV() {
-    }
-
-    protected static String parseIL(final String funct3) {
-        return switch (funct3) {
-            case "000" -> "lb";
-            case "001" -> "lh";
-            case "010" -> "lw";
-            case "100" -> "lbu";
-            case "101" -> "lhu";
-            default -> throw new Error("I", funct3);
-        };
-    }
-
-    protected static String parseICsr(final String funct3) {
-        return switch (funct3) {
-            case "001" -> "csrrw";
-            case "010" -> "csrrs";
-            case "011" -> "csrrc";
-            case "101" -> "csrrwi";
-            case "110" -> "csrrsi";
-            case "111" -> "csrrci";
-            default -> throw new Error("I", funct3);
-        };
-    }
-
-    protected static String parseISr(final String funct3, final String funct7) {
-        return switch (funct3) {
-            case "000" -> "addi";
-            case "001" -> {
-                if (Commands.isZeroes(funct7)) {
-                    yield "slli";
-                } else {
-                    throw new Error("I", funct7);
-                }
-            }
-            case "010" -> "slti";
-            case "011" -> "sltiu";
-            case "100" -> "xori";
-            case "101" -> switch (funct7) {
-                case "0000000" -> "srli";
-                case "0100000" -> "srai";
-                default -> throw new Error("I", funct7);
-            };
-            case "110" -> "ori";
-            case "111" -> "andi";
-            default -> throw new Error("I", funct3);
-        };
-    }
-
-    protected static String parseS(final String funct3) {
-        return switch (funct3) {
-            case "000" -> "sb";
-            case "001" -> "sh";
-            case "010" -> "sw";
-            default -> throw new Error("S", funct3);
-        };
-    }
-
-    protected static String parseU(final String opcode) {
-        return switch (opcode) {
-            case "0110111" -> "lui";
-            case "0010111" -> "auipc";
-            default -> throw new Error("U", opcode);
-        };
-    }
-
-    protected static String parseB(final String funct3) {
-        return switch (funct3) {
-            case "000" -> "beq";
-            case "001" -> "bne";
-            case "100" -> "blt";
-            case "101" -> "bge";
-            case "110" -> "bltu";
-            case "111" -> "bgeu";
-            default -> throw new Error("B", funct3);
-        };
-    }
-
-    protected static String parseR(final String funct7, final String funct3) {
-        return switch (funct7) {
-            case "0000000" -> switch (funct3) {
-                case "000" -> "add";
-                case "001" -> "sll";
-                case "010" -> "slt";
-                case "011" -> "sltu";
-                case "100" -> "xor";
-                case "101" -> "srl";
-                case "110" -> "or";
-                case "111" -> "and";
-                default -> throw new Error("R", funct3);
-            };
-            case "0100000" -> switch (funct3) {
-                case "000" -> "sub";
-                case "101" -> "sra";
-                default -> throw new Error("R", funct3);
-            };
-            case "0000001" -> switch (funct3) {
-                case "000" -> "mul";
-                case "001" -> "mulh";
-                case "010" -> "mulhsu";
-                case "011" -> "mulhu";
-                case "100" -> "div";
-                case "101" -> "divu";
-                case "110" -> "rem";
-                case "111" -> "remu";
-                default -> throw new Error("R", funct3);
-            };
-            default -> throw new Error("R", funct7);
-        };
-    }
-}
-
-class Symtab {
-    private Symtab() {
-    }
-
-    protected static String getStringIndex(final int other) {
-        return switch (other) {
-            case 0 -> "UNDEF";
-            case 0xff00 -> "LOPROC";
-            case 0xff01 -> "AFTER";
-            case 0xff02 -> "AMD64_LCOMMON";
-            case 0xff1f -> "HIPROC";
-            case 0xff20 -> "LOOS";
-            case 0xff3f -> "HIOS";
-            case 0xfff1 -> "ABS";
-            case 0xfff2 -> "COMMON";
-            case 0xffff -> "HIRESERVE";
-            default -> other + "";
-        };
-    }
-
-    protected static String getStringVis(final int other) {
-        return switch (other) {
-            case 0 -> "DEFAULT";
-            case 1 -> "INTERNAL";
-            case 2 -> "HIDDEN";
-            case 3 -> "PROTECTED";
-            case 4 -> "EXPORTED";
-            case 5 -> "SINGLETON";
-            case 6 -> "ELIMINATE";
-            default -> "UNKNOWN";
-        };
-    }
-
-    protected static String getStringBind(final int info) {
-        return switch (info) {
-            case 0 -> "LOCAL";
-            case 1 -> "GLOBAL";
-            case 2 -> "WEAK";
-            case 10 -> "LOOS";
-            case 12 -> "HIOS";
-            case 13 -> "LOPROC";
-            case 15 -> "HIPROC";
-            default -> "UNKNOWN";
-        };
-    }
-
-    protected static String getStringType(final int info) {
-        return switch (info) {
-            case 0 -> "NOTYPE";
-            case 1 -> "OBJECT";
-            case 2 -> "FUNC";
-            case 3 -> "SECTION";
-            case 4 -> "FILE";
-            case 5 -> "COMMON";
-            case 6 -> "TLS";
-            case 10 -> "LOOS";
-            case 12 -> "HIOS";
-            case 13 -> "LOPROC";
-            case 14 -> "SPARC_REGISTER";
-            case 15 -> "HIPROC";
-            default -> "UNKNOWN";
-        };
-    }
-}
-
-class Commands {
-    protected static Map<Integer, Integer> symtabMap = null;
-    protected static ArrayList<Symtable> symtapList = null;
-    protected static int text_addr;
-
-    private Commands() {
-    }
-
-    protected static AnswerPair<String[], Boolean> parseCommand(int[] bytes, int left) {
-        return new AnswerPair<>(Commands.parseRiscV(bytes, left), true);
-    }
-
-    private static String[] parseRiscV(int[] bytes, int left) {
-        StringBuilder sb = new StringBuilder().append(decToBin(bytes[left + 3])).append(decToBin(bytes[left + 2])).append(decToBin(bytes[left + 1])).append(decToBin(bytes[left]));
-        String opcode = sb.substring(25, 32);
-        String rd = sb.substring(20, 25);
-        String funct3 = sb.substring(17, 20);
-        String rs1 = sb.substring(12, 17);
-        String rs2 = sb.substring(7, 12);
-        String funct7 = sb.substring(0, 7);
-
-        if (sb.toString().equals("00000000000000000000000001110011")) {
-            return new String[]{"ecall"};
-        } else if (sb.toString().equals("00000000000100000000000001110011")) {
-            return new String[]{"ebreak"};
-        }
-
-        return switch (opcode) {
-            case "0110011" -> new String[]{RISCV.parseR(funct7, funct3), reg(rd), reg(rs1), reg(rs2)};
-            case "1100011" -> {
-                int imm_b = Integer.parseUnsignedInt((sb.charAt(0) + "").repeat(20) + sb.charAt(24) + sb.substring(1, 7) + sb.substring(20, 24) + "0", 2);
-                yield new String[]{RISCV.parseB(funct3), reg(rs1), reg(rs2), getLabel(imm_b + 4)};
-            }
-            case "0100011" -> {
-                int imm_s = Integer.parseUnsignedInt(Character.toString(sb.charAt(0)).repeat(20) + sb.substring(0, 7) + sb.substring(20, 25), 2);
-                yield new String[]{
-                        String.format("%7s %s, %s(%s)", RISCV.parseS(funct3), reg(rs2), "" + imm_s, reg(rs1))
-                };
-            }
-            case "0110111", "0010111" -> {
-                int imm_u = Integer.parseUnsignedInt(sb.substring(0, 20) + "0".repeat(12), 2);
-                yield new String[]{RISCV.parseU(opcode), reg(rd), imm_u + ""};
-            }
-            case "1110011" -> new String[]{RISCV.parseICsr(funct3), reg(rd), reg(sb.substring(0, 12)), reg(rs1)};
-            case "0010011" -> {
-                int imm_i = Integer.parseUnsignedInt(Character.toString(sb.charAt(0)).repeat(20) + sb.substring(0, 12), 2);
-                yield new String[]{
-                        RISCV.parseISr(funct3, funct7), reg(rd), reg(rs1), "" + (funct3.equals("101") || funct3.equals("001") ? Integer.parseUnsignedInt(sb.substring(7, 12), 2) : imm_i)
-                };
-            }
-            case "0000011" -> {
-                int imm_i = Integer.parseUnsignedInt(Character.toString(sb.charAt(0)).repeat(20) + sb.substring(0, 12), 2);
-                yield new String[]{
-                        String.format("%7s %s, %s(%s)", RISCV.parseIL(funct3), reg(rd), "" + imm_i, reg(rs1))
-                };
-            }
-            case "1101111" -> {
-                int imm_j = Integer.parseUnsignedInt(Character.toString(sb.charAt(0)).repeat(12) + sb.substring(12, 20) + sb.charAt(11) + sb.substring(1, 11) + "0", 2);
-                yield new String[]{"jal", reg(rd), getLabel(imm_j)};
-            }
-            case "1100111" -> {
-                int imm_i = Integer.parseUnsignedInt(Character.toString(sb.charAt(0)).repeat(20) + sb.substring(0, 12), 2);
-                yield new String[]{"jalr", reg(rd), reg(rs1), "" + imm_i};
-            }
-            case "0001111" -> new String[] {"fence" + (funct3.equals("001") ? ".i" : "")};
-            default -> throw new Error("Risc-V", sb.toString());
-        };
-    }
-
-    private static String reg(String a) {
-        int reg = Integer.parseInt(a, 2);
-        if (reg == 0) {
-            return "zero";
-        } else if (reg == 1) {
-            return "ra";
-        } else if (reg == 2) {
-            return "sp";
-        } else if (reg == 3) {
-            return "gp";
-        } else if (reg == 4) {
-            return "tp";
-        } else if (reg == 5) {
-            return "t0";
-        } else if (6 <= reg && reg <= 7) {
-            String s = "t";
-            s += (char) (reg - 5 + '0');
-            return s;
-        } else if (reg == 8) {
-            return "s0";
-        } else if (reg == 9) {
-            return "s1";
-        } else if (10 <= reg && reg <= 11) {
-            String s = "a";
-            s += (char) (reg - 10 + '0');
-            return s;
-        } else if (12 <= reg && reg <= 17) {
-            String s = "a";
-            s += (char) (reg - 10 + '0');
-            return s;
-        } else if (18 <= reg && reg <= 27) {
-            String s = "s";
-            s += (char) (reg - 16 + '0');
-            return s;
-        } else if (28 <= reg && reg <= 31) {
-            String s = "t";
-            s += (char) (reg - 25 + '0');
-            return s;
-        }
-        return null;
-    }
-
-    protected static String decToBin(int b) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < 8; i++) {
-            sb.append(b % 2);
-            b /= 2;
-        }
-        return sb.reverse().toString();
-    }
-
-    protected static boolean isZeroes(final String x) {
-        return x.equals("0".repeat(x.length()));
-    }
-
-    private static String getLabel(int i) {
-        final int addr_command = text_addr + i;
-        if (symtabMap.containsKey(addr_command)) {
-            return symtapList.get(symtabMap.get(addr_command)).getName();
-        }
-        symtabMap.put(addr_command, symtapList.size());
-        symtapList.add(new Symtable(String.format("L%d", addr_command)));
-        return getLabel(i);
+public class Parser {
+    private record Chunk(String name, Section section, int from, int to) {
     }
-}
 
-public class Parser {
-    private final int[] bytes;
-    private final FileOutput out;
-    private final Map<String, Section> sections = new LinkedHashMap<>();
-    private final ArrayList<Symtable> symtables = new ArrayList<>();
-    private final Map<Integer, Integer> symTabNodesDict = new HashMap<>();
+    private static final int TEXT_CHUNK = 1 << 16;
+    private static final int DECODE_CACHE_SIZE = 4096;
+    /**
+     * Bytes every search pattern is run over before the scan moves on, small enough to stay in cache.
+     */
+    private static final int SEARCH_BLOCK = 1 << 15;
+    /**
+     * One decode cache per thread and ELF class, kept across chunks and files: cached entries are raw
+     * instructions whose text doesn't depend on the image.
+     */
+    private static final ThreadLocal<DecodeCache> DECODE_CACHE_32 = ThreadLocal.withInitial(() -> new DecodeCache(DECODE_CACHE_SIZE));
+    private static final ThreadLocal<DecodeCache> DECODE_CACHE_64 = ThreadLocal.withInitial(() -> new DecodeCache(DECODE_CACHE_SIZE));
+    private final ElfInput input;
+    private final OutputBuffer out;
+    /**
+     * Every section header in file order; names may repeat, and code sections of a relocatable object
+     * all start at address 0.
+     */
+    private final List<Section> sections = new ArrayList<>();
+    private final List<String> sectionNames = new ArrayList<>();
+    private SymbolTable symtables;
+    private IntIndex symTabNodesDict;
+    private Commands commands;
+    private final Map<Section, TargetSet> targets = new HashMap<>();
+    private Section[] code;
+    private ElfReader reader;
+    private boolean rv64;
+    private String[] codeNames;
+    private boolean overlapping;
+    private int parallelism = 1;
+    private OutputFormat format = OutputFormat.TEXT;
+    private IncrementalCache incremental;
+    private Metrics metrics;
+    private boolean xref;
+    private List<int[]> edges;
+    private XrefIndex xrefs;
+    private int labels;
+    private long cacheHits, cacheMisses, cacheBypasses;
 
     public Parser(String fileIn, String fileOut) {
-        final byte[] bytes1;
         try {
-            bytes1 = Files.readAllBytes(Paths.get("src/" + fileIn));
+            input = ElfInput.map(Paths.get(fileIn));
         } catch (IOException e) {
             throw new Error(String.format("file \"%s\" the file's format must be .elf: ", e.getMessage()));
         }
-        bytes = new int[bytes1.length];
-        for (int i = 0; i < bytes1.length; i++) {
-            bytes[i] = ((bytes1[i] < 0) ? 256 : 0) + bytes1[i];
-        }
         try {
             out = new FileOutput(fileOut);
         } catch (IOException e) {
@@ -356,124 +67,772 @@ public class Parser {
         }
     }
 
+    protected Parser(final ElfInput input, final OutputBuffer out) {
+        this.input = input;
+        this.out = out;
+    }
+
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setFormat(final OutputFormat format) {
+        this.format = format;
+    }
+
+    public void setIncremental(final IncrementalCache incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setMetrics(final Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Records every branch, jump and call during the label pass and dumps the {@link XrefIndex} after {@code .symtab}.
+     */
+    public void setXref(final boolean xref) {
+        this.xref = xref;
+    }
+
     public void parse(String fileOut) {
-        parseHeader();
-        parseSymtab();
+        Throwable failure = null;
         try {
-            parseAndDumpText();
-        } catch (IOException e) {
-            throw new Error(".text", "Couldn't write to file", e.getMessage());
-        }
-        try {
-            dumpSymtab();
-        } catch (IOException e) {
-            throw new Error(".symtab", "Couldn't write to file", e.getMessage());
+            phase(Metrics.HEADER);
+            parseHeader();
+            phase(Metrics.SYMTAB);
+            parseSymtab();
+            try {
+                parseAndDumpText();
+            } catch (IOException e) {
+                throw new Error(".text", "Couldn't write to file", e.getMessage());
+            }
+            try {
+                phase(Metrics.SYMTAB_DUMP);
+                dumpSymtab();
+                dumpXrefs();
+            } catch (IOException e) {
+                throw new Error(".symtab", "Couldn't write to file", e.getMessage());
+            }
+            finishMetrics();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            close(fileOut, failure);
         }
+    }
+
+    /**
+     * A failed close becomes a suppressed exception of {@code failure}, so that it does not hide the
+     * error that ended the run.
+     */
+    private void close(final String fileOut, final Throwable failure) {
         try {
             out.close();
         } catch (IOException e) {
-            throw new Error(String.format("Couldn't close file \"%s\"", fileOut));
+            final Error error = new Error(String.format("Couldn't close file \"%s\"", fileOut));
+            if (failure == null) {
+                throw error;
+            }
+            failure.addSuppressed(error);
+        }
+    }
+
+    protected void disassemble() throws IOException {
+        phase(Metrics.HEADER);
+        parseHeader();
+        phase(Metrics.SYMTAB);
+        parseSymtab();
+        parseAndDumpText();
+        phase(Metrics.SYMTAB_DUMP);
+        dumpSymtab();
+        dumpXrefs();
+        finishMetrics();
+        out.flush();
+    }
+
+    private void phase(final int phase) {
+        if (metrics != null) {
+            metrics.phase(phase);
         }
-        System.out.printf("Everything's good, you can see the result in  \"%s\"%n", fileOut);
     }
 
-    private void parseHeader() {
-        final int e_shoff = cnt(32, 4);
-        final int e_shentsiz = cnt(46, 2);
-        final int e_shnum = cnt(48, 2);
-        final int e_shstrndx = cnt(50, 2);
+    private void finishMetrics() {
+        if (metrics != null) {
+            metrics.finish(out.written(), labels, symtables.size() - labels, cacheStats(), incremental);
+        }
+    }
+
+    protected void parseHeader() {
+        reader = ElfReader.of(input);
+        rv64 = reader.is64();
+        final int e_shoff = reader.sectionHeaders();
+        final int e_shentsiz = reader.sectionHeaderSize();
+        final int e_shnum = reader.sectionCount();
+        final int e_shstrndx = reader.sectionNamesIndex();
+        if (e_shentsiz < (rv64 ? 64 : 40) || e_shstrndx >= e_shnum
+                || Integer.toUnsignedLong(e_shoff) + (long) e_shnum * e_shentsiz > input.size()) {
+            throw new Error("section headers are outside the file");
+        }
         final int go = e_shoff + e_shentsiz * e_shstrndx;
-        final int sh_offset12 = cnt(go + 16, 4);
-        for (int j = 0, tmp = e_shoff; j < e_shnum; j++, tmp += 40) {
+        final int sh_offset12 = reader.section(go)[4];
+        for (int j = 0, tmp = e_shoff; j < e_shnum; j++, tmp += e_shentsiz) {
             String name = getName(sh_offset12 + cnt(tmp, 4));
-            int[] param = new int[10];
-            for (int r = 0; r < 10; r++) {
-                param[r] = cnt(tmp + 4 * r, 4);
-            }
-            sections.put(name, new Section(param));
+            sections.add(new Section(reader.section(tmp)));
+            sectionNames.add(name);
         }
+        findCode();
     }
 
     private void parseAndDumpText() throws IOException {
-        Section Text = sections.get(".text");
-        out.writeToFIle(".text\n");
-        int ind = Text.offset;
-        final int size = Text.size;
-        final int addr = Text.addr;
-        for (int i = 0; i < size; i += 2) {
-            AnswerPair<String[], Boolean> ans = Commands.parseCommand(bytes, ind);
-            String label = (symTabNodesDict.containsKey(addr + i) && symtables.get(symTabNodesDict.get(addr + i)).getType().equals("FUNC")) ? symtables.get(symTabNodesDict.get(addr + i)).getName() : "";
-            if (!label.isEmpty()) {
-                out.writeToFIle(String.format("%08x   <%s>:\n", (addr + i), label));
-            }
-            out.writeToFIle(String.format("   %05x:\t", addr + i));
-            out.writeToFIle(String.format("   %08x:\t", addr));
-            int len = ans.first().length;
-            out.writeToFIle(String.format("%7s\t", ans.first()[0]));
-            for (int j = 1; j < len; j++) {
-                out.writeToFIle(String.format("%s", ans.first()[j]));
-                if (j != len - 1) {
-                    out.writeToFIle(",\t");
+        if (format == OutputFormat.BINARY) {
+            StructuredOutput.writeBinaryHeader(out);
+        }
+        final ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            phase(Metrics.LABELS);
+            final List<Chunk> chunks = new ArrayList<>();
+            final long[] cuts = incremental != null ? functionCuts() : null;
+            for (int s = 0; s < code.length; s++) {
+                final Section section = code[s];
+                final int[] bounds = incremental != null ? functionBounds(section, cuts)
+                        : pool != null ? splitText(section) : new int[]{0, section.size};
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    chunks.add(new Chunk(codeNames[s], section, bounds[i], bounds[i + 1]));
                 }
             }
+            collectLabels(pool, chunks);
+            phase(Metrics.TEXT);
+            if (pool != null) {
+                dumpTextParallel(pool, chunks);
+            } else {
+                for (Chunk chunk : chunks) {
+                    openSection(chunk);
+                    dumpRegion(out, chunk.section(), chunk.from(), chunk.to());
+                    closeSection(chunk);
+                    out.flushIfFull();
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private void openSection(final Chunk chunk) {
+        if (chunk.from() == 0 && format == OutputFormat.TEXT) {
+            out.write(chunk.name());
             out.newLine();
+        }
+    }
+
+    private void closeSection(final Chunk chunk) {
+        if (chunk.to() == chunk.section().size && format == OutputFormat.TEXT) {
+            out.newLine();
+        }
+    }
+
+    /**
+     * Sections with SHF_EXECINSTR and file contents, sorted by address; sections at the same address
+     * keep their file order.
+     */
+    private void findCode() {
+        final List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            if (sections.get(i).isCode()) {
+                checkBounds(sectionNames.get(i), sections.get(i));
+                found.add(i);
+            }
+        }
+        found.sort((a, b) -> Integer.compareUnsigned(sections.get(a).addr, sections.get(b).addr));
+        code = new Section[found.size()];
+        codeNames = new String[found.size()];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = sections.get(found.get(i));
+            codeNames[i] = sectionNames.get(found.get(i));
+            overlapping |= i > 0 && Integer.compareUnsigned(code[i].addr - code[i - 1].addr, code[i - 1].size) < 0;
+        }
+    }
+
+    /**
+     * @return the first section named {@code name}, or {@code null}.
+     */
+    private Section section(final String name) {
+        final int i = sectionNames.indexOf(name);
+        return i < 0 ? null : sections.get(i);
+    }
+
+    /**
+     * Where code sections overlap, as in a relocatable object, an address is ambiguous; branch targets
+     * are looked up in the section of the branch first, see {@link #addTarget}.
+     *
+     * @return the code section containing {@code addr}, the one starting last if several do, or {@code null}.
+     */
+    protected Section codeSectionAt(final int addr) {
+        int lo = 0;
+        int hi = code.length - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (Integer.compareUnsigned(code[mid].addr, addr) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        for (; hi >= 0; hi--) {
+            if (contains(code[hi], addr)) {
+                return code[hi];
+            }
+            if (!overlapping) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    private static boolean contains(final Section section, final int addr) {
+        return Integer.compareUnsigned(addr - section.addr, section.size) < 0;
+    }
+
+    /**
+     * Marks every branch and jal target and gives the ones without a symbol an {@code L<addr>} label,
+     * so that the emission pass only reads the symbol index.
+     */
+    private void collectLabels(final ForkJoinPool pool, final List<Chunk> chunks) {
+        for (Section section : code) {
+            targets.put(section, new TargetSet(section.addr, section.size));
+        }
+        edges = xref ? new ArrayList<>() : null;
+        if (pool == null) {
+            for (Chunk chunk : chunks) {
+                addTargets(chunk.section(), discoverTargets(chunk));
+            }
+        } else {
+            final List<ForkJoinTask<int[]>> discovery = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                discovery.add(pool.submit(() -> discoverTargets(chunk)));
+            }
+            for (int i = 0; i < chunks.size(); i++) {
+                addTargets(chunks.get(i).section(), discovery.get(i).join());
+            }
+        }
+        for (Section section : code) {
+            final TargetSet found = targets.get(section);
+            for (int offset = found.next(0); offset < section.size; offset = found.next(offset + 2)) {
+                final int addr = section.addr + offset;
+                if (!symTabNodesDict.containsKey(addr)) {
+                    symTabNodesDict.put(addr, symtables.addLabel(addr));
+                    labels++;
+                }
+            }
+        }
+        if (edges != null) {
+            xrefs = new XrefIndex(edges, symtables);
+            edges = null;
+        }
+    }
+
+    private int[] discoverTargets(final Chunk chunk) {
+        final Section section = chunk.section();
+        return xref ? Commands.collectEdges(input, section.offset + chunk.from(), section.addr + chunk.from(), chunk.to() - chunk.from(), rv64)
+                : Commands.collectTargets(input, section.offset + chunk.from(), section.addr + chunk.from(), chunk.to() - chunk.from(), rv64);
+    }
+
+    private void addTargets(final Section from, final int[] found) {
+        if (edges == null) {
+            for (int target : found) {
+                addTarget(from, target);
+            }
+            return;
+        }
+        edges.add(found);
+        for (int i = 0; i < found.length; i += XrefIndex.STRIDE) {
+            if (XrefIndex.hasTarget(found[i + 2])) {
+                addTarget(from, found[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * A target inside the section of its branch is labelled there, even if other sections cover the
+     * same address.
+     */
+    private void addTarget(final Section from, final int target) {
+        final Section section = contains(from, target) ? from : codeSectionAt(target);
+        if (section != null) {
+            targets.get(section).add(target);
+        }
+    }
+
+    /**
+     * Chunk boundaries of roughly {@code TEXT_CHUNK} bytes that fall on instruction starts. Only the
+     * length bits of each instruction are read, so this serial walk is cheap next to decoding.
+     */
+    private int[] splitText(final Section text) {
+        int[] bounds = new int[text.size / TEXT_CHUNK + 2];
+        int count = 1;
+        for (int i = 0, next = TEXT_CHUNK; i < text.size; i += Commands.length(input, text.offset + i)) {
+            if (i >= next) {
+                if (count + 1 == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+                }
+                bounds[count++] = i;
+                next = i + TEXT_CHUNK;
+            }
+        }
+        bounds[count++] = text.size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private void dumpTextParallel(final ForkJoinPool pool, final List<Chunk> chunks) throws IOException {
+        final int count = chunks.size();
+        final List<ForkJoinTask<OutputBuffer>> rendered = new ArrayList<>();
+        final int window = 4 * parallelism;
+        for (int i = 0, submitted = 0; i < count; i++) {
+            for (; submitted < count && submitted < i + window; submitted++) {
+                final Chunk chunk = chunks.get(submitted);
+                rendered.add(pool.submit(() -> {
+                    final long allocated = metrics == null ? 0 : metrics.threadAllocated();
+                    final OutputBuffer buffer = new OutputBuffer(16 * (chunk.to() - chunk.from()));
+                    dumpRegion(buffer, chunk.section(), chunk.from(), chunk.to());
+                    if (metrics != null) {
+                        metrics.allocatedSince(allocated);
+                    }
+                    return buffer;
+                }));
+            }
+            openSection(chunks.get(i));
+            out.write(rendered.get(i).join());
+            rendered.set(i, null);
+            closeSection(chunks.get(i));
+            out.flushIfFull();
+        }
+    }
+
+    /**
+     * @return the start and end addresses of all FUNC symbols, unsigned and sorted, shared by all code sections.
+     */
+    private long[] functionCuts() {
+        final long[] cuts = new long[2 * symtables.size()];
+        int count = 0;
+        for (int i = 0; i < symtables.size(); i++) {
+            if (symtables.isFunction(i)) {
+                cuts[count++] = Integer.toUnsignedLong(symtables.value(i));
+                cuts[count++] = Integer.toUnsignedLong(symtables.value(i) + symtables.size(i));
+            }
+        }
+        Arrays.sort(cuts, 0, count);
+        return Arrays.copyOf(cuts, count);
+    }
+
+    /**
+     * Region boundaries at every FUNC symbol start and end that falls on an instruction start, so that
+     * an unchanged function hashes the same between builds.
+     */
+    private int[] functionBounds(final Section text, final long[] cuts) {
+        final long base = Integer.toUnsignedLong(text.addr);
+        int next = firstAtOrAfter(cuts, base);
+        final int[] bounds = new int[firstAtOrAfter(cuts, base + text.size) - next + 2];
+        int found = 1;
+        for (int i = 0; i < text.size; i += Commands.length(input, text.offset + i)) {
+            while (next < cuts.length && cuts[next] < base + i) {
+                next++;
+            }
+            if (next < cuts.length && cuts[next] == base + i && i > 0) {
+                bounds[found++] = i;
+            }
+        }
+        bounds[found++] = text.size;
+        return Arrays.copyOf(bounds, found);
+    }
+
+    private static int firstAtOrAfter(final long[] sorted, final long value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void dumpRegion(final OutputBuffer out, final Section text, final int from, final int to) throws IOException {
+        if (incremental == null) {
+            dumpText(out, text, from, to);
+            return;
+        }
+        final ByteBuffer key = IncrementalCache.key(regionInputs(text, from, to));
+        final byte[] cached = incremental.get(key);
+        if (cached != null) {
+            out.write(cached);
+            return;
+        }
+        final OutputBuffer region = new OutputBuffer(16 * (to - from));
+        dumpText(region, text, from, to);
+        incremental.put(key, region.toByteArray());
+        out.write(region);
+    }
+
+    /**
+     * Everything the rendered region depends on: format, addresses, raw bytes, the labels printed inside
+     * it and the names of all branch and jump targets.
+     */
+    private byte[] regionInputs(final Section text, final int from, final int to) {
+        final OutputBuffer data = new OutputBuffer(20 + 2 * (to - from));
+        data.writeIntLE(rv64 ? 64 : 32);
+        data.writeIntLE(format.ordinal());
+        data.writeIntLE(text.addr);
+        data.writeIntLE(from);
+        data.writeIntLE(to);
+        for (int i = from; i < to; i++) {
+            data.writeByte(input.cnt(text.offset + i, 1));
+        }
+        final TargetSet found = targets.get(text);
+        for (int i = from; i < to; i += Commands.length(input, text.offset + i)) {
+            final String label = labelAt(found, text.addr + i);
+            if (label != null) {
+                data.writeIntLE(i);
+                writeString(data, label);
+            }
+            final int offset = Commands.branchOffset(input, text.offset + i, rv64);
+            if (offset != Commands.NO_TARGET) {
+                writeString(data, commands.getLabel(text.addr + i + offset));
+            }
+        }
+        return data.toByteArray();
+    }
+
+    private static void writeString(final OutputBuffer data, final String str) {
+        data.writeIntLE(str.length());
+        data.write(str);
+    }
+
+    private void dumpText(final OutputBuffer out, final Section text, final int from, final int to) throws IOException {
+        if (format != OutputFormat.TEXT) {
+            dumpRecords(out, text, from, to);
+            return;
+        }
+        int ind = text.offset + from;
+        final int addr = text.addr;
+        final TargetSet found = targets.get(text);
+        final DecodeCache cache = (rv64 ? DECODE_CACHE_64 : DECODE_CACHE_32).get();
+        final long hits = cache.hits();
+        final long misses = cache.misses();
+        final long bypasses = cache.bypasses();
+        int decoded = 0;
+        for (int i = from; i < to; i += 2, decoded++) {
+            AnswerPair<String[], Boolean> ans = commands.parseCommand(input, ind, addr + i, cache);
+            writeInstruction(out, addr + i, addr, labelAt(found, addr + i), ans.first());
+            out.flushIfFull();
             ind += 2;
             if (ans.second()) {
                 i += 2;
                 ind += 2;
             }
         }
+        addCacheStats(cache.hits() - hits, cache.misses() - misses, cache.bypasses() - bypasses);
+        if (metrics != null) {
+            metrics.instructions(decoded);
+        }
+    }
+
+    private static void writeInstruction(final OutputBuffer out, final int addr, final int base, final String label,
+                                         final String[] tokens) {
+        if (label != null && !label.isEmpty()) {
+            out.writeHex(addr, 8);
+            out.write("   <");
+            out.write(label);
+            out.write(">:\n");
+        }
+        out.write("   ");
+        out.writeHex(addr, 5);
+        out.write(":\t   ");
+        out.writeHex(base, 8);
+        out.write(":\t");
+        out.writePadded(tokens[0], 7);
+        out.write('\t');
+        for (int j = 1; j < tokens.length; j++) {
+            out.write(String.valueOf(tokens[j]));
+            if (j != tokens.length - 1) {
+                out.write(",\t");
+            }
+        }
         out.newLine();
     }
 
-    private void parseSymtab() {
-        final Section Symtab = sections.get(".symtab");
-        final int ind = Symtab.offset;
-        final int num = Symtab.size / 16;
-        for (int i = 0; i < num; i++) {
-            StringBuilder sb = new StringBuilder();
-            for (int j = 0; j < 4; j++) {
-                sb.append(new StringBuilder(decToBin(bytes[ind + i * 16 + 12 + j])).reverse());
+    /**
+     * Disassembles {@code [from, to)} of the code section containing {@code from} on its own, without the
+     * whole-section label pass: only branch targets inside the range get a header line. Only reads state
+     * built by {@link #parseSymtab()}, so any number of ranges can be dumped concurrently.
+     */
+    protected void dumpRange(final OutputBuffer out, final int from, final int to) {
+        final Section text = codeSectionAt(from);
+        if (text == null || Integer.compareUnsigned(to - from, text.size - (from - text.addr)) > 0) {
+            throw new Error(".text", "No instruction range", String.format("0x%x-0x%x", from, to));
+        }
+        final TargetSet local = new TargetSet(from, to - from);
+        for (int target : Commands.collectTargets(input, text.offset + from - text.addr, from, to - from, rv64)) {
+            local.add(target);
+        }
+        for (int addr = from; Integer.compareUnsigned(addr - from, to - from) < 0; ) {
+            final int left = text.offset + addr - text.addr;
+            final AnswerPair<String[], Boolean> ans = commands.parseCommand(input, left, addr);
+            final int symbol = symTabNodesDict.get(addr);
+            final String label = local.contains(addr) ? commands.getLabel(addr)
+                    : symbol >= 0 && symtables.isFunction(symbol) ? symtables.name(symbol) : null;
+            writeInstruction(out, addr, text.addr, label, ans.first());
+            addr += ans.second() ? 4 : 2;
+        }
+    }
+
+    protected SymbolTable symbols() {
+        return symtables;
+    }
+
+    /**
+     * Builds the {@link XrefIndex} of all code sections without the label pass, for {@link ElfImage}.
+     */
+    protected XrefIndex buildXrefs() {
+        final List<int[]> found = new ArrayList<>();
+        for (Section section : code) {
+            found.add(Commands.collectEdges(input, section.offset, section.addr, section.size, rv64));
+        }
+        return new XrefIndex(found, symtables);
+    }
+
+    protected int instructionLength(final int addr) {
+        final Section text = codeSectionAt(addr);
+        return Commands.length(input, text.offset + addr - text.addr);
+    }
+
+    private synchronized void addCacheStats(final long hits, final long misses, final long bypasses) {
+        cacheHits += hits;
+        cacheMisses += misses;
+        cacheBypasses += bypasses;
+    }
+
+    public synchronized long[] cacheStats() {
+        return new long[]{cacheHits, cacheMisses, cacheBypasses};
+    }
+
+    protected void parseSymtab() {
+        final Section Symtab = section(".symtab");
+        if (Symtab == null) {
+            symTabNodesDict = new IntIndex(0);
+            symtables = new SymbolTable(input, 0);
+            updateDataInParserCommands();
+            return;
+        }
+        final Section Strtab = section(".strtab");
+        if (Strtab == null) {
+            throw new Error(".symtab", "Couldn't find symbol names", "no .strtab section");
+        }
+        checkBounds(".symtab", Symtab);
+        checkBounds(".strtab", Strtab);
+        final int entry = reader.symbolSize();
+        final int num = Integer.divideUnsigned(Symtab.size, entry);
+        symTabNodesDict = new IntIndex(num);
+        symtables = new SymbolTable(input, num);
+        for (int i = 0, ind = Symtab.offset; i < num; i++, ind += entry) {
+            final int value = reader.symbolValue(ind);
+            final int name = reader.symbolName(ind);
+            if (Integer.compareUnsigned(name, Strtab.size) >= 0) {
+                throw new Error(".symtab", "Symbol name is outside .strtab", "symbol " + i);
             }
-            final String name = getName(cnt(ind + i * 16, 4) + sections.get(".strtab").offset);
-            final int value = cnt(ind + i * 16 + 4, 4);
-            final int size = cnt(ind + i * 16 + 8, 4);
-            final int info = Integer.parseInt(new StringBuilder(sb.substring(0, 8)).reverse().toString(), 2);
-            final int other = Integer.parseInt(new StringBuilder(sb.substring(8)).reverse().toString(), 2);
-            symTabNodesDict.put(value, symtables.size());
-            symtables.add(new Symtable(i, name, value, size, info, other));
+            symTabNodesDict.put(value, symtables.add(Strtab.offset + name, value, reader.symbolSize(ind),
+                    reader.symbolInfo(ind), reader.symbolOther(ind)));
         }
         updateDataInParserCommands();
     }
 
+    private void checkBounds(final String name, final Section section) {
+        if (!section.fits(input.size())) {
+            throw new Error(name, "Section is outside the file", String.format("offset %d, size %d",
+                    Integer.toUnsignedLong(section.offset), Integer.toUnsignedLong(section.size)));
+        }
+    }
+
     private void updateDataInParserCommands() {
-        Commands.symtapList = symtables;
-        Commands.symtabMap = symTabNodesDict;
-        Commands.text_addr = sections.get(".text").addr;
+        commands = new Commands(symTabNodesDict, symtables, rv64);
+    }
+
+    private void dumpRecords(final OutputBuffer out, final Section text, final int from, final int to) throws IOException {
+        final TargetSet found = targets.get(text);
+        final Instruction ins = new Instruction();
+        int decoded = 0;
+        for (int i = from; i < to; i += ins.length, decoded++) {
+            if (rv64) {
+                Commands.decode64(input, text.offset + i, text.addr + i, ins);
+            } else {
+                Commands.decode(input, text.offset + i, text.addr + i, ins);
+            }
+            if (format == OutputFormat.JSON) {
+                StructuredOutput.writeJson(out, ins, labelAt(found, text.addr + i));
+            } else {
+                StructuredOutput.writeBinary(out, ins);
+            }
+            out.flushIfFull();
+        }
+        if (metrics != null) {
+            metrics.instructions(decoded);
+        }
+    }
+
+    /**
+     * @return the name to print in front of the instruction at {@code addr}, or {@code null}.
+     */
+    private String labelAt(final TargetSet targets, final int addr) {
+        final int symbol = symTabNodesDict.get(addr);
+        return symbol >= 0 && (targets.contains(addr) || symtables.isFunction(symbol)) ? symtables.name(symbol) : null;
     }
 
     private void dumpSymtab() throws IOException {
-        out.writeToFIle("\n");
-        out.writeToFIle(".symtab\n");
-        out.writeToFIle(String.format("%s %-15s %7s %-8s %-8s %-8s %6s %s\n", "Symbol", "Value", "Size", "Type", "Bind", "Vis", "Index", "Name"));
-        for (Symtable node : symtables) {
-            out.writeToFIle(node.toNewString());
+        if (section(".symtab") == null) {
+            return;
+        }
+        if (format == OutputFormat.JSON) {
+            for (int i = 0; i < symtables.size(); i++) {
+                symtables.writeJsonTo(out, i);
+                out.flushIfFull();
+            }
+            return;
+        } else if (format == OutputFormat.BINARY) {
+            return;
+        }
+        out.write("\n");
+        out.write(".symtab\n");
+        out.write(String.format("%s %-15s %7s %-8s %-8s %-8s %6s %s\n", "Symbol", "Value", "Size", "Type", "Bind", "Vis", "Index", "Name"));
+        for (int i = 0; i < symtables.size(); i++) {
+            symtables.writeTo(out, i);
+            out.flushIfFull();
         }
     }
 
-    protected int cnt(final int left, final int num) {
-        int ans = 0;
-        for (int i = num - 1; i >= 0; i--) {
-            ans = ans * 256 + bytes[left + i];
+    public int search(final Search search, final String fileOut) {
+        Throwable failure = null;
+        try {
+            return search(search);
+        } catch (IOException e) {
+            final Error error = new Error(".text", "Couldn't write to file", e.getMessage());
+            failure = error;
+            throw error;
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            close(fileOut, failure);
         }
-        return ans;
     }
 
-    protected String getName(int left) {
-        final StringBuilder sb = new StringBuilder();
-        while (bytes[left] != 0) {
-            sb.append((char) bytes[left++]);
+    /**
+     * Writes every instruction matching {@code search} in the current format and returns how many there
+     * were. There is no label pass: only the code bytes and the instructions that match are read.
+     */
+    protected int search(final Search search) throws IOException {
+        parseHeader();
+        parseSymtab();
+        if (format == OutputFormat.BINARY) {
+            StructuredOutput.writeBinaryHeader(out);
+        }
+        final Search.Compiled patterns = search.compiled(rv64);
+        int found = 0;
+        for (Section section : code) {
+            found += searchSection(section, patterns);
         }
-        return sb.toString();
+        out.flush();
+        return found;
+    }
+
+    /**
+     * Every pair scans the section on its own with {@link ElfInput#find}, the scans are merged in address
+     * order. Instruction starts are only walked up to a position that matches, and only such positions
+     * are decoded.
+     */
+    private int searchSection(final Section text, final Search.Compiled patterns) throws IOException {
+        final int[] masks = patterns.masks();
+        final int[] values = patterns.values();
+        final String[] mnemonics = patterns.mnemonics();
+        final int to = text.offset + text.size;
+        final int[] next = new int[masks.length];
+        final Instruction ins = new Instruction();
+        int found = 0;
+        int boundary = text.offset;
+        for (int block = text.offset; block < to; block += SEARCH_BLOCK) {
+            final int end = Math.min(to, block + SEARCH_BLOCK);
+            for (int p = 0; p < masks.length; p++) {
+                next[p] = input.find(block, end, to, masks[p], values[p]);
+            }
+            while (true) {
+                int left = end;
+                for (int position : next) {
+                    left = Math.min(left, position);
+                }
+                if (left == end) {
+                    break;
+                }
+                boundary = input.skip(boundary, left);
+                boolean decoded = false;
+                boolean written = false;
+                for (int p = 0; p < masks.length; p++) {
+                    if (next[p] != left) {
+                        continue;
+                    }
+                    next[p] = input.find(left + 2, end, to, masks[p], values[p]);
+                    if (boundary != left || written) {
+                        continue;
+                    }
+                    if (!decoded) {
+                        if (rv64) {
+                            Commands.decode64(input, left, text.addr + left - text.offset, ins);
+                        } else {
+                            Commands.decode(input, left, text.addr + left - text.offset, ins);
+                        }
+                        decoded = true;
+                    }
+                    if (mnemonics[p] == null || mnemonics[p].equals(ins.mnemonic)) {
+                        writeMatch(text, left - text.offset, ins);
+                        found++;
+                        written = true;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private void writeMatch(final Section text, final int i, final Instruction ins) throws IOException {
+        if (format == OutputFormat.TEXT) {
+            writeInstruction(out, text.addr + i, text.addr, null, commands.parseCommand(input, text.offset + i, text.addr + i).first());
+        } else if (format == OutputFormat.JSON) {
+            StructuredOutput.writeJson(out, ins, null);
+        } else {
+            StructuredOutput.writeBinary(out, ins);
+        }
+        out.flushIfFull();
+    }
+
+    private void dumpXrefs() throws IOException {
+        if (xrefs == null) {
+            return;
+        }
+        if (format == OutputFormat.TEXT) {
+            xrefs.writeTo(out, commands);
+        } else if (format == OutputFormat.JSON) {
+            xrefs.writeJsonTo(out);
+        }
+    }
+
+    protected int cnt(final int left, final int num) {
+        return input.cnt(left, num);
+    }
+
+    protected String getName(int left) {
+        return input.getName(left);
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package disassembler;
+
+import java.util.Arrays;
+
+class RISCV {
+    protected static final int R = 1;
+    protected static final int B = 2;
+    protected static final int S = 3;
+    protected static final int U = 4;
+    protected static final int SYSTEM = 5;
+    protected static final int I = 6;
+    protected static final int LOAD = 7;
+    protected static final int JAL = 8;
+    protected static final int JALR = 9;
+    protected static final int FENCE = 10;
+
+    /**
+     * Format of every major opcode, 0 for the ones the decoder doesn't know.
+     */
+    protected static final byte[] FORMATS = new byte[128];
+    private static final byte[] FUNCT7_ROWS = new byte[128];
+    private static final String[] LOADS = {"lb", "lh", "lw", null, "lbu", "lhu", null, null};
+    private static final String[] CSRS = {null, "csrrw", "csrrs", "csrrc", null, "csrrwi", "csrrsi", "csrrci"};
+    private static final String[] IMMEDIATES = {"addi", "slli", "slti", "sltiu", "xori", null, "ori", "andi"};
+    private static final String[] STORES = {"sb", "sh", "sw", null, null, null, null, null};
+    private static final String[] LOADS_64 = {"lb", "lh", "lw", "ld", "lbu", "lhu", "lwu", null};
+    private static final String[] STORES_64 = {"sb", "sh", "sw", "sd", null, null, null, null};
+    private static final String[] OPERATIONS_W = {
+            "addw", "sllw", null, null, null, "srlw", null, null,
+            "subw", null, null, null, null, "sraw", null, null,
+            "mulw", null, null, null, "divw", "divuw", "remw", "remuw"
+    };
+    private static final String[] BRANCHES = {"beq", "bne", null, null, "blt", "bge", "bltu", "bgeu"};
+    private static final String[] OPERATIONS = {
+            "add", "sll", "slt", "sltu", "xor", "srl", "or", "and",
+            "sub", null, null, null, null, "sra", null, null,
+            "mul", "mulh", "mulhsu", "mulhu", "div", "divu", "rem", "remu"
+    };
+
+    static {
+        FORMATS[0b0110011] = R;
+        FORMATS[0b1100011] = B;
+        FORMATS[0b0100011] = S;
+        FORMATS[0b0110111] = U;
+        FORMATS[0b0010111] = U;
+        FORMATS[0b1110011] = SYSTEM;
+        FORMATS[0b0010011] = I;
+        FORMATS[0b0000011] = LOAD;
+        FORMATS[0b1101111] = JAL;
+        FORMATS[0b1100111] = JALR;
+        FORMATS[0b0001111] = FENCE;
+        Arrays.fill(FUNCT7_ROWS, (byte) -1);
+        FUNCT7_ROWS[0b0000000] = 0;
+        FUNCT7_ROWS[0b0100000] = 1;
+        FUNCT7_ROWS[0b0000001] = 2;
+    }
+
+    private RISCV() {
+    }
+
+    protected static String parseIL(final int funct3) {
+        return LOADS[funct3];
+    }
+
+    protected static String parseICsr(final int funct3) {
+        return CSRS[funct3];
+    }
+
+    protected static String parseISr(final int funct3, final int funct7) {
+        if (funct3 == 0b001 && funct7 != 0) {
+            return null;
+        } else if (funct3 == 0b101) {
+            return switch (funct7) {
+                case 0b0000000 -> "srli";
+                case 0b0100000 -> "srai";
+                default -> null;
+            };
+        }
+        return IMMEDIATES[funct3];
+    }
+
+    protected static String parseIL64(final int funct3) {
+        return LOADS_64[funct3];
+    }
+
+    /**
+     * Shifts with the 6-bit RV64 shift amount, {@code funct6} being the top six bits of the word.
+     */
+    protected static String parseISr64(final int funct3, final int funct6) {
+        return switch (funct3 << 6 | funct6) {
+            case 0b001 << 6 -> "slli";
+            case 0b101 << 6 -> "srli";
+            case 0b101 << 6 | 0b010000 -> "srai";
+            default -> null;
+        };
+    }
+
+    protected static String parseIW(final int funct3, final int funct7) {
+        return switch (funct3 << 7 | funct7) {
+            case 0b001 << 7 -> "slliw";
+            case 0b101 << 7 -> "srliw";
+            case 0b101 << 7 | 0b0100000 -> "sraiw";
+            default -> funct3 == 0 ? "addiw" : null;
+        };
+    }
+
+    protected static String parseS64(final int funct3) {
+        return STORES_64[funct3];
+    }
+
+    protected static String parseRW(final int funct7, final int funct3) {
+        final int row = FUNCT7_ROWS[funct7];
+        if (row < 0) {
+            return null;
+        }
+        return OPERATIONS_W[(row << 3) | funct3];
+    }
+
+    protected static String parseS(final int funct3) {
+        return STORES[funct3];
+    }
+
+    protected static String parseU(final int opcode) {
+        return opcode == 0b0110111 ? "lui" : "auipc";
+    }
+
+    protected static String parseB(final int funct3) {
+        return BRANCHES[funct3];
+    }
+
+    protected static String parseR(final int funct7, final int funct3) {
+        final int row = FUNCT7_ROWS[funct7];
+        if (row < 0) {
+            return null;
+        }
+        return OPERATIONS[(row << 3) | funct3];
+    }
+}
@@ -0,0 +1,100 @@
+package disassembler;
+
+/**
+ * Tables and field extraction for the 16-bit "C" extension. Formats are looked up by
+ * {@code quadrant << 3 | funct3}, the quadrant being the two low bits of the parcel.
+ */
+class RVC {
+    protected static final int RESERVED = 0;
+    protected static final int ADDI4SPN = 1;
+    protected static final int LOAD = 2;
+    protected static final int STORE = 3;
+    protected static final int ADDI = 4;
+    protected static final int JAL = 5;
+    protected static final int LI = 6;
+    protected static final int LUI = 7;
+    protected static final int ALU = 8;
+    protected static final int J = 9;
+    protected static final int BRANCH = 10;
+    protected static final int SLLI = 11;
+    protected static final int LOAD_SP = 12;
+    protected static final int MISC = 13;
+    protected static final int STORE_SP = 14;
+
+    protected static final byte[] FORMATS = {
+            ADDI4SPN, LOAD, LOAD, LOAD, RESERVED, STORE, STORE, STORE,
+            ADDI, JAL, LI, LUI, ALU, J, BRANCH, BRANCH,
+            SLLI, LOAD_SP, LOAD_SP, LOAD_SP, MISC, STORE_SP, STORE_SP, STORE_SP
+    };
+    protected static final String[] MNEMONICS = {
+            "c.addi4spn", "c.fld", "c.lw", "c.flw", null, "c.fsd", "c.sw", "c.fsw",
+            "c.addi", "c.jal", "c.li", "c.lui", null, "c.j", "c.beqz", "c.bnez",
+            "c.slli", "c.fldsp", "c.lwsp", "c.flwsp", null, "c.fsdsp", "c.swsp", "c.fswsp"
+    };
+    /**
+     * Whether the load/store of the same slot moves a floating-point register.
+     */
+    protected static final boolean[] FLOAT = {
+            false, true, false, true, false, true, false, true,
+            false, false, false, false, false, false, false, false,
+            false, true, false, true, false, true, false, true
+    };
+    protected static final String[] ALU_MNEMONICS = {"c.srli", "c.srai", "c.andi", null};
+    protected static final String[] ARITHMETIC_MNEMONICS = {"c.sub", "c.xor", "c.or", "c.and"};
+
+    private RVC() {
+    }
+
+    protected static int slot(final int half) {
+        return ((half & 0x3) << 3) | ((half >>> 13) & 0x7);
+    }
+
+    /**
+     * Registers x8-x15 encoded in three bits.
+     */
+    protected static int low(final int bits) {
+        return 8 + (bits & 0x7);
+    }
+
+    protected static int immCI(final int half) {
+        return (((half << 19) >> 26) & ~0x1f) | ((half >>> 2) & 0x1f);
+    }
+
+    protected static int shamt(final int half) {
+        return ((half >>> 7) & 0x20) | ((half >>> 2) & 0x1f);
+    }
+
+    protected static int immAddi4spn(final int half) {
+        return ((half >>> 7) & 0x30) | ((half >>> 1) & 0x3c0) | ((half >>> 4) & 0x4) | ((half >>> 2) & 0x8);
+    }
+
+    protected static int immAddi16sp(final int half) {
+        return ((half << 19) >> 22 & ~0x1ff) | ((half >>> 2) & 0x10) | ((half << 1) & 0x40) | ((half << 4) & 0x180) | ((half << 3) & 0x20);
+    }
+
+    /**
+     * Offset of {@code c.lw}/{@code c.sw} and friends, {@code doubleword} for the 8-byte variants.
+     */
+    protected static int immMem(final int half, final boolean doubleword) {
+        final int base = (half >>> 7) & 0x38;
+        return doubleword ? base | ((half << 1) & 0xc0) : base | ((half >>> 4) & 0x4) | ((half << 1) & 0x40);
+    }
+
+    protected static int immLoadSp(final int half, final boolean doubleword) {
+        final int base = ((half >>> 7) & 0x20) | ((half >>> 2) & 0x18);
+        return doubleword ? base | ((half << 4) & 0x1c0) : base | ((half >>> 2) & 0x4) | ((half << 4) & 0xc0);
+    }
+
+    protected static int immStoreSp(final int half, final boolean doubleword) {
+        return doubleword ? ((half >>> 7) & 0x38) | ((half >>> 1) & 0x1c0) : ((half >>> 7) & 0x3c) | ((half >>> 1) & 0xc0);
+    }
+
+    protected static int immJ(final int half) {
+        return ((half << 19) >> 20 & ~0x7ff) | ((half >>> 7) & 0x10) | ((half >>> 1) & 0x300) | ((half << 2) & 0x400)
+                | ((half >>> 1) & 0x40) | ((half << 1) & 0x80) | ((half >>> 2) & 0xe) | ((half << 3) & 0x20);
+    }
+
+    protected static int immB(final int half) {
+        return ((half << 19) >> 23 & ~0xff) | ((half >>> 7) & 0x18) | ((half << 1) & 0xc0) | ((half >>> 2) & 0x6) | ((half << 3) & 0x20);
+    }
+}
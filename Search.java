@@ -0,0 +1,168 @@
+package disassembler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instruction-shape queries compiled into (mask, value) pairs on raw instruction words. The scan in
+ * {@link Parser} tests every 2-byte position of a code section against the pairs straight from the
+ * input buffer and decodes only the positions that match, so a search costs a pass over the bytes
+ * instead of a full disassembly.
+ *
+ * <p>A query is either {@code <mask>:<value>} in hex, or an instruction name or one of the groups
+ * {@code load}, {@code store} and {@code branch}, followed by any of {@code rd=}, {@code rs1=},
+ * {@code rs2=} (register name, {@code xN} or number) and {@code csr=} (CSR name or number), e.g.
+ * {@code "csrrw csr=mtvec"}, {@code "ecall"} or {@code "store rs1=gp"}. A field the format of a queried
+ * instruction doesn't have is an error (see {@link Encodings#fields}). The groups include the compressed
+ * forms, whose 3-bit register fields only match {@code x8}-{@code x15} and whose {@code sp} forms only
+ * {@code rs1=sp}. Named queries only report
+ * instruction starts that decode to the queried name.
+ */
+public final class Search {
+    private static final String[] LOADS = {"lb", "lh", "lw", "lbu", "lhu", "lwu", "ld", "c.lw", "c.ld", "c.lwsp", "c.ldsp"};
+    private static final String[] STORES = {"sb", "sh", "sw", "sd", "c.sw", "c.sd", "c.swsp", "c.sdsp"};
+    private static final String[] BRANCHES = {"beq", "bne", "blt", "bge", "bltu", "bgeu", "c.beqz", "c.bnez"};
+    private static final List<String> GROUPS = List.of("load", "store", "branch");
+
+    /**
+     * Pairs of one ELF class; {@code mnemonics[i]} is {@code null} for a raw pair.
+     */
+    protected record Compiled(int[] masks, int[] values, String[] mnemonics) {
+    }
+
+    private final Compiled rv32;
+    private final Compiled rv64;
+
+    public Search(final List<String> queries) {
+        rv32 = compile(queries, Encodings.RV32);
+        rv64 = compile(queries, Encodings.RV64);
+        for (int i = 0; i < queries.size(); i++) {
+            if (compile(queries.subList(i, i + 1), Encodings.RV32).masks().length == 0
+                    && compile(queries.subList(i, i + 1), Encodings.RV64).masks().length == 0) {
+                final String name = queries.get(i).trim().split("\\s+")[0];
+                throw invalid(queries.get(i), Encodings.RV64.encoding(name) == null && !GROUPS.contains(name)
+                        ? "unknown instruction" : "no encoding can hold these field values");
+            }
+        }
+    }
+
+    protected Compiled compiled(final boolean rv64) {
+        return rv64 ? this.rv64 : rv32;
+    }
+
+    private static Compiled compile(final List<String> queries, final Encodings encodings) {
+        final List<int[]> pairs = new ArrayList<>();
+        final List<String> mnemonics = new ArrayList<>();
+        for (String query : queries) {
+            final String[] parts = query.trim().split("\\s+");
+            final int colon = parts[0].indexOf(':');
+            if (colon > 0) {
+                if (parts.length > 1) {
+                    throw invalid(query, "a raw pattern takes no fields");
+                }
+                final int mask = hex(query, parts[0].substring(0, colon));
+                final int value = hex(query, parts[0].substring(colon + 1));
+                if ((value & ~mask) != 0) {
+                    throw invalid(query, "value has bits outside the mask");
+                }
+                pairs.add(new int[]{mask, value});
+                mnemonics.add(null);
+                continue;
+            }
+            final List<String> fields = new ArrayList<>();
+            final List<Integer> values = new ArrayList<>();
+            for (int i = 1; i < parts.length; i++) {
+                final int eq = parts[i].indexOf('=');
+                if (eq < 0) {
+                    throw invalid(query, String.format("expected <field>=<value>, got \"%s\"", parts[i]));
+                }
+                final String field = parts[i].substring(0, eq);
+                final String value = parts[i].substring(eq + 1);
+                values.add(switch (field) {
+                    case "rd", "rs1", "rs2" -> register(query, value);
+                    case "csr" -> csr(query, value);
+                    default -> throw invalid(query, String.format("unknown field \"%s\"", field));
+                });
+                fields.add(field);
+            }
+            final String[] names = switch (parts[0]) {
+                case "load" -> LOADS;
+                case "store" -> STORES;
+                case "branch" -> BRANCHES;
+                default -> new String[]{parts[0]};
+            };
+            for (String name : names) {
+                final int[] encoding = encodings.encoding(name);
+                if (encoding == null) {
+                    continue;
+                }
+                final Map<String, Encodings.Field> format = Encodings.fields(name);
+                int mask = encoding[0];
+                int value = encoding[1];
+                boolean possible = true;
+                for (int i = 0; i < fields.size(); i++) {
+                    final Encodings.Field field = format.get(fields.get(i));
+                    if (field == null) {
+                        throw invalid(query, String.format("%s has no %s field", name, fields.get(i)));
+                    }
+                    final int bits = field.bits(values.get(i));
+                    possible &= bits >= 0 && ((mask & field.mask()) == 0 || (value & field.mask()) == bits);
+                    mask |= field.mask();
+                    value |= bits;
+                }
+                if (possible) {
+                    pairs.add(new int[]{mask, value});
+                    mnemonics.add(name);
+                }
+            }
+        }
+        final int[] masks = new int[pairs.size()];
+        final int[] values = new int[pairs.size()];
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = pairs.get(i)[0];
+            values[i] = pairs.get(i)[1];
+        }
+        return new Compiled(masks, values, mnemonics.toArray(new String[0]));
+    }
+
+    private static int hex(final String query, final String value) {
+        try {
+            return Integer.parseUnsignedInt(value.startsWith("0x") ? value.substring(2) : value, 16);
+        } catch (NumberFormatException e) {
+            throw invalid(query, String.format("\"%s\" is not a hex number", value));
+        }
+    }
+
+    private static int register(final String query, final String value) {
+        for (int i = 0; i < 32; i++) {
+            if (Commands.reg(i).equals(value) || value.equals("x" + i) || value.equals(String.valueOf(i))) {
+                return i;
+            }
+        }
+        if (value.equals("fp")) {
+            return 8;
+        }
+        throw invalid(query, String.format("unknown register \"%s\"", value));
+    }
+
+    private static int csr(final String query, final String value) {
+        try {
+            final int csr = value.startsWith("0x") ? Integer.parseInt(value.substring(2), 16) : Integer.parseInt(value);
+            if (csr >= 0 && csr < 0x1000) {
+                return csr;
+            }
+        } catch (NumberFormatException e) {
+            for (int i = 0; i < 0x1000; i++) {
+                if (Commands.csr(i).equals(value)) {
+                    return i;
+                }
+            }
+        }
+        throw invalid(query, String.format("unknown CSR \"%s\"", value));
+    }
+
+    private static Error invalid(final String query, final String message) {
+        return new Error(String.format("invalid search \"%s\": %s", query, message));
+    }
+}
@@ -1,6 +1,8 @@
 package disassembler;
 
 public class Section {
+    private static final int SHT_NOBITS = 8;
+    private static final int SHF_EXECINSTR = 0x4;
     protected final int name, type, flags, addr, offset, size, link, info, addralign, entsize;
     protected Section(int[] param) {
         name = param[0];
@@ -14,6 +16,14 @@ public class Section {
         addralign = param[8];
         entsize = param[9];
     }
+    protected boolean isCode() {
+        return (flags & SHF_EXECINSTR) != 0 && type != SHT_NOBITS && size > 0;
+    }
+
+    protected boolean fits(final int fileSize) {
+        return type == SHT_NOBITS || Integer.toUnsignedLong(offset) + Integer.toUnsignedLong(size) <= fileSize;
+    }
+
     public String toNewString() {
         return String.format("name = %2d, addr = %5d, offset = %4d, size = %4d", name, addr, offset, size);
     }
@@ -0,0 +1,170 @@
+package disassembler;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Keeps one JVM with a warmed-up decoder and runs {@link Main} command lines sent by {@link Client}.
+ * Every connection carries one request: the client's working directory, its arguments and, when the
+ * input is "-", the ELF file up to the end of the stream. The reply is a sequence of frames
+ * {@code [stream][int length][bytes]} for the client's stdout and stderr, ended by {@code [EXIT][int status]}.
+ * Requests run with the server's rights on any path, so the socket is only open to its owner.
+ */
+public class Server {
+    protected static final byte EXIT = 0;
+    protected static final byte STDOUT = 1;
+    protected static final byte STDERR = 2;
+
+    private final String address;
+
+    public Server(final String address) {
+        this.address = address;
+    }
+
+    protected static UnixDomainSocketAddress address(final String address) {
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    public void run(final int threads, final boolean virtual) throws IOException {
+        final Path path = address(address).getPath().toAbsolutePath();
+        if (Files.isRegularFile(path) || Files.isDirectory(path)) {
+            throw new Error(String.format("\"%s\" exists and is not a socket", path));
+        }
+        final ExecutorService pool = Batch.newPool(threads, virtual);
+        try (ServerSocketChannel server = bind(path)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                }
+            }));
+            warmUp();
+            System.out.printf("Listening on %s%n", address);
+            while (true) {
+                final SocketChannel client = server.accept();
+                pool.execute(() -> serve(client));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Binds the socket inside a fresh owner-only directory, makes it owner-only as well and only then
+     * moves it to {@code path}, so that it is never reachable with the permissions of the umask.
+     */
+    private static ServerSocketChannel bind(final Path path) throws IOException {
+        if (!path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            throw new Error(String.format("can't make \"%s\" owner-only on this file system", path));
+        }
+        final Path dir = Files.createTempDirectory(path.getParent(), ".server",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        final Path bound = dir.resolve("socket");
+        final ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(bound));
+            Files.setPosixFilePermissions(bound, PosixFilePermissions.fromString("rw-------"));
+            Files.move(bound, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            Files.deleteIfExists(bound);
+            throw e;
+        } finally {
+            Files.delete(dir);
+        }
+        return server;
+    }
+
+    /**
+     * Disassembles a generated image a few times in every format, so that the first requests already
+     * run compiled decoder code.
+     */
+    private static void warmUp() throws IOException {
+        final ByteBuffer elf = Synthetic.elf(Synthetic.instructions("MIXED", 20_000, 1), 400, 1);
+        final WritableByteChannel discard = Channels.newChannel(OutputStream.nullOutputStream());
+        for (int i = 0; i < 5; i++) {
+            for (OutputFormat format : OutputFormat.values()) {
+                Disassembler.disassemble(elf, discard, new Disassembler.Options().format(format));
+            }
+        }
+    }
+
+    private static void serve(final SocketChannel client) {
+        try (client) {
+            final DataInputStream request = new DataInputStream(Channels.newInputStream(client));
+            final Path cwd = Paths.get(request.readUTF());
+            final String[] args = new String[request.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = request.readUTF();
+            }
+            final Frames stdout = new Frames(client, STDOUT);
+            final PrintStream out = new PrintStream(Channels.newOutputStream(stdout), true, StandardCharsets.UTF_8);
+            final PrintStream err = new PrintStream(Channels.newOutputStream(new Frames(client, STDERR)), true, StandardCharsets.UTF_8);
+            int status = 0;
+            try {
+                Main.run(args, cwd, client, stdout, out, err);
+            } catch (RuntimeException e) {
+                err.println(e.getMessage() != null ? e.getMessage() : e);
+                status = 1;
+            }
+            stdout.frame(EXIT, status, ByteBuffer.allocate(0));
+        } catch (IOException e) {
+            System.err.printf("client: %s%n", e.getMessage());
+        }
+    }
+
+    /**
+     * Everything written becomes frames of one of the client's streams.
+     */
+    private static final class Frames implements WritableByteChannel {
+        private final SocketChannel channel;
+        private final byte stream;
+
+        private Frames(final SocketChannel channel, final byte stream) {
+            this.channel = channel;
+            this.stream = stream;
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            final int length = src.remaining();
+            frame(stream, length, src);
+            return length;
+        }
+
+        private void frame(final byte type, final int value, final ByteBuffer payload) throws IOException {
+            final ByteBuffer header = ByteBuffer.allocate(5).put(type).putInt(value).flip();
+            final ByteBuffer[] frame = {header, payload};
+            synchronized (channel) {
+                while (header.hasRemaining() || payload.hasRemaining()) {
+                    channel.write(frame);
+                }
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
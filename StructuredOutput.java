@@ -0,0 +1,134 @@
+package disassembler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writers for the machine-readable output formats. Both are produced straight from {@link Instruction}
+ * fields, no per-instruction strings are built.
+ *
+ * <p>The binary stream starts with the magic {@code RVDB}, a u16 version, a u16 mnemonic count and the
+ * mnemonics as (u8 length, ASCII bytes). Every instruction is then a 20-byte little-endian record:
+ * u32 address, u32 raw encoding, u16 mnemonic id, u8 length in bytes, u8 layout, u8 rd, u8 rs1, u8 rs2,
+ * u8 flags (bit 0: floating-point register), i32 immediate. Absent registers are 0xff.
+ */
+class StructuredOutput {
+    protected static final int VERSION = 1;
+    protected static final String[] MNEMONICS = {
+            "lui", "auipc", "jal", "jalr", "beq", "bne", "blt", "bge", "bltu", "bgeu",
+            "lb", "lh", "lw", "lbu", "lhu", "sb", "sh", "sw",
+            "addi", "slti", "sltiu", "xori", "ori", "andi", "slli", "srli", "srai",
+            "add", "sub", "sll", "slt", "sltu", "xor", "srl", "sra", "or", "and",
+            "fence", "fence.i", "ecall", "ebreak", "csrrw", "csrrs", "csrrc", "csrrwi", "csrrsi", "csrrci",
+            "mul", "mulh", "mulhsu", "mulhu", "div", "divu", "rem", "remu",
+            "c.addi4spn", "c.fld", "c.lw", "c.flw", "c.fsd", "c.sw", "c.fsw",
+            "c.nop", "c.addi", "c.jal", "c.li", "c.addi16sp", "c.lui", "c.srli", "c.srai", "c.andi",
+            "c.sub", "c.xor", "c.or", "c.and", "c.j", "c.beqz", "c.bnez",
+            "c.slli", "c.fldsp", "c.lwsp", "c.flwsp", "c.jr", "c.mv", "c.ebreak", "c.jalr", "c.add",
+            "c.fsdsp", "c.swsp", "c.fswsp",
+            "ld", "lwu", "sd", "addiw", "slliw", "srliw", "sraiw",
+            "addw", "subw", "sllw", "srlw", "sraw", "mulw", "divw", "divuw", "remw", "remuw",
+            "c.ld", "c.sd", "c.ldsp", "c.sdsp", "c.addiw", "c.subw", "c.addw",
+            "unknown"
+    };
+    private static final Map<String, Integer> IDS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < MNEMONICS.length; i++) {
+            IDS.put(MNEMONICS[i], i);
+        }
+    }
+
+    private StructuredOutput() {
+    }
+
+    protected static int id(final String mnemonic) {
+        final Integer id = IDS.get(mnemonic);
+        return id == null ? 0xffff : id;
+    }
+
+    protected static void writeBinaryHeader(final OutputBuffer out) {
+        out.write("RVDB");
+        out.writeShortLE(VERSION);
+        out.writeShortLE(MNEMONICS.length);
+        for (String mnemonic : MNEMONICS) {
+            out.writeByte(mnemonic.length());
+            out.write(mnemonic);
+        }
+    }
+
+    protected static void writeBinary(final OutputBuffer out, final Instruction ins) {
+        out.writeIntLE(ins.addr);
+        out.writeIntLE(ins.word);
+        out.writeShortLE(id(ins.mnemonic));
+        out.writeByte(ins.length);
+        out.writeByte(ins.layout);
+        out.writeByte(ins.has(Instruction.RD) ? ins.rd : 0xff);
+        out.writeByte(ins.has(Instruction.RS1) ? ins.rs1 : 0xff);
+        out.writeByte(ins.has(Instruction.RS2) ? ins.rs2 : 0xff);
+        out.writeByte(ins.floating ? 1 : 0);
+        out.writeIntLE(ins.has(Instruction.IMM) ? ins.imm : 0);
+    }
+
+    /**
+     * @param label symbol or label that starts at this instruction, {@code null} if there is none.
+     */
+    protected static void writeJson(final OutputBuffer out, final Instruction ins, final String label) {
+        out.write("{\"addr\":");
+        out.writeUnsigned(ins.addr);
+        out.write(",\"len\":");
+        out.writeDec(ins.length, 0);
+        out.write(",\"word\":");
+        out.writeUnsigned(ins.word);
+        out.write(",\"op\":\"");
+        out.write(ins.mnemonic);
+        out.write('"');
+        if (ins.has(Instruction.RD)) {
+            out.write(",\"rd\":");
+            out.writeDec(ins.rd, 0);
+        }
+        if (ins.has(Instruction.RS1)) {
+            out.write(",\"rs1\":");
+            out.writeDec(ins.rs1, 0);
+        }
+        if (ins.has(Instruction.RS2)) {
+            out.write(",\"rs2\":");
+            out.writeDec(ins.rs2, 0);
+        }
+        if (ins.has(Instruction.IMM)) {
+            out.write(",\"imm\":");
+            out.writeDec(ins.imm, 0);
+        }
+        if (ins.has(Instruction.TARGET)) {
+            out.write(",\"target\":");
+            out.writeUnsigned(ins.target());
+        }
+        if (ins.floating) {
+            out.write(",\"float\":true");
+        }
+        if (label != null) {
+            out.write(",\"label\":");
+            writeJsonString(out, label);
+        }
+        out.write("}\n");
+    }
+
+    protected static void writeJsonString(final OutputBuffer out, final String str) {
+        out.write('"');
+        for (int i = 0; i < str.length(); i++) {
+            final char c = str.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write("\\u00");
+                out.writeHex(c, 2);
+            } else if (c < 0x80) {
+                out.write(c);
+            } else {
+                out.write(String.valueOf(c));
+            }
+        }
+        out.write('"');
+    }
+}
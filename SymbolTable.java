@@ -0,0 +1,152 @@
+package disassembler;
+
+import java.util.Arrays;
+
+/**
+ * Symbol table kept in parallel primitive arrays. Names stay in {@code .strtab} until they are printed
+ * or used as a label; entries added for branch targets have no name offset and are called {@code L<addr>}.
+ */
+public class SymbolTable {
+    private static final int LABEL = -1;
+    private final ElfInput input;
+    private int count;
+    private int[] names;
+    private int[] values;
+    private int[] sizes;
+    private int[] infos;
+    private String[] strings;
+
+    protected SymbolTable(final ElfInput input, final int expected) {
+        this.input = input;
+        final int capacity = Math.max(expected, 16);
+        names = new int[capacity];
+        values = new int[capacity];
+        sizes = new int[capacity];
+        infos = new int[capacity];
+    }
+
+    /**
+     * @param name absolute file offset of the name
+     * @param other {@code st_other} in the low byte and {@code st_shndx} above it
+     * @return index of the new entry
+     */
+    protected int add(final int name, final int value, final int size, final int info, final int other) {
+        if (count == names.length) {
+            final int capacity = 2 * count;
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            infos = Arrays.copyOf(infos, capacity);
+        }
+        names[count] = name;
+        values[count] = value;
+        sizes[count] = size;
+        infos[count] = (other << 8) | info;
+        return count++;
+    }
+
+    protected int addLabel(final int addr) {
+        return add(LABEL, addr, 0, 0, 0);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int value(final int i) {
+        return values[i];
+    }
+
+    public int size(final int i) {
+        return sizes[i];
+    }
+
+    public boolean isFunction(final int i) {
+        return names[i] != LABEL && (infos[i] & 0xf) == 2;
+    }
+
+    /**
+     * The String is built on first use and kept, so labels printed many times are decoded once. Racing
+     * callers at worst build the same String twice.
+     */
+    public String name(final int i) {
+        String name = strings == null ? null : strings[i];
+        if (name == null) {
+            name = names[i] == LABEL ? "L" + Integer.toUnsignedString(values[i]) : input.getName(names[i]);
+            if (strings == null || strings.length < count) {
+                strings = strings == null ? new String[count] : Arrays.copyOf(strings, count);
+            }
+            strings[i] = name;
+        }
+        return name;
+    }
+
+    /**
+     * Whether the entry is left out of the dump: branch labels and, as before, any name starting with 'L'.
+     */
+    private boolean hidden(final int i) {
+        return names[i] == LABEL || input.cnt(names[i], 1) == 'L';
+    }
+
+    public void writeTo(final OutputBuffer out, final int i) {
+        if (hidden(i)) {
+            return;
+        }
+        final int info = infos[i];
+        out.write('[');
+        out.writeDec(i, 4);
+        out.write("] 0x");
+        out.writeUpperHex(values[i], -15);
+        out.write(' ');
+        out.writeDec(sizes[i], 5);
+        out.write(' ');
+        out.writePadded(Symtab.getStringType(info & 0xf), -8);
+        out.write(' ');
+        out.writePadded(Symtab.getStringBind((info & 0xff) >> 4), -8);
+        out.write(' ');
+        out.writePadded(Symtab.getStringVis((info >>> 8) & 0x3), -8);
+        out.write(' ');
+        out.writePadded(Symtab.getStringIndex(info >>> 16), 6);
+        out.write(' ');
+        writeName(out, names[i]);
+        out.write('\n');
+    }
+
+    public void writeJsonTo(final OutputBuffer out, final int i) {
+        if (hidden(i)) {
+            return;
+        }
+        final int info = infos[i];
+        out.write("{\"symbol\":");
+        out.writeDec(i, 0);
+        out.write(",\"value\":");
+        out.writeUnsigned(values[i]);
+        out.write(",\"size\":");
+        out.writeUnsigned(sizes[i]);
+        out.write(",\"type\":\"");
+        out.write(Symtab.getStringType(info & 0xf));
+        out.write("\",\"bind\":\"");
+        out.write(Symtab.getStringBind((info & 0xff) >> 4));
+        out.write("\",\"vis\":\"");
+        out.write(Symtab.getStringVis((info >>> 8) & 0x3));
+        out.write("\",\"index\":\"");
+        out.write(Symtab.getStringIndex(info >>> 16));
+        out.write("\",\"name\":");
+        StructuredOutput.writeJsonString(out, name(i));
+        out.write("}\n");
+    }
+
+    /**
+     * Copies a Latin-1 name from the file as UTF-8 without building a String.
+     */
+    private void writeName(final OutputBuffer out, int left) {
+        for (int c; left < input.size() && (c = input.cnt(left, 1)) != 0; left++) {
+            if (c < 0x80) {
+                out.writeByte(c);
+            } else {
+                out.writeByte(0xc0 | (c >> 6));
+                out.writeByte(0x80 | (c & 0x3f));
+            }
+        }
+    }
+}
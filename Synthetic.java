@@ -0,0 +1,165 @@
+package disassembler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generates instruction streams and small ELF32 images for benchmarks and fuzzing.
+ */
+public class Synthetic {
+    public static final String[] MIXES = {"R", "I", "S", "B", "U", "J", "CSR", "FENCE", "MIXED"};
+    protected static final int TEXT_ADDR = 0x10074;
+
+    private Synthetic() {
+    }
+
+    public static int[] instructions(final String mix, final int count, final long seed) {
+        final Random random = new Random(seed);
+        final int[] words = new int[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = instruction(mix.equals("MIXED") ? MIXES[random.nextInt(MIXES.length - 1)] : mix, random, count);
+        }
+        return words;
+    }
+
+    private static int instruction(final String kind, final Random random, final int count) {
+        final int rd = random.nextInt(32);
+        final int rs1 = random.nextInt(32);
+        final int rs2 = random.nextInt(32);
+        return switch (kind) {
+            case "R" -> {
+                final int funct7 = new int[]{0, 0x20, 1}[random.nextInt(3)];
+                final int funct3 = funct7 == 0x20 ? (random.nextBoolean() ? 0 : 5) : random.nextInt(8);
+                yield (funct7 << 25) | (rs2 << 20) | (rs1 << 15) | (funct3 << 12) | (rd << 7) | 0b0110011;
+            }
+            case "I" -> {
+                final int funct3 = random.nextInt(8);
+                final int imm = funct3 == 1 ? rs2 : funct3 == 5 ? (random.nextBoolean() ? 0x400 : 0) | rs2 : random.nextInt(4096);
+                final int opcode = random.nextInt(3) == 0 ? 0b0000011 : 0b0010011;
+                yield opcode == 0b0000011 ? (imm << 20) | (rs1 << 15) | (new int[]{0, 1, 2, 4, 5}[random.nextInt(5)] << 12) | (rd << 7) | opcode
+                        : (imm << 20) | (rs1 << 15) | (funct3 << 12) | (rd << 7) | opcode;
+            }
+            case "S" -> (random.nextInt(128) << 25) | (rs2 << 20) | (rs1 << 15) | (random.nextInt(3) << 12) | (random.nextInt(32) << 7) | 0b0100011;
+            case "B" -> branch(new int[]{0, 1, 4, 5, 6, 7}[random.nextInt(6)], rs1, rs2, 2 * (random.nextInt(2 * count) - count));
+            case "U" -> (random.nextInt(1 << 20) << 12) | (rd << 7) | (random.nextBoolean() ? 0b0110111 : 0b0010111);
+            case "J" -> jal(rd, 2 * (random.nextInt(2 * count) - count));
+            case "CSR" -> (random.nextInt(4096) << 20) | (rs1 << 15) | (new int[]{1, 2, 3, 5, 6, 7}[random.nextInt(6)] << 12) | (rd << 7) | 0b1110011;
+            case "FENCE" -> (random.nextInt(4096) << 20) | (random.nextInt(2) << 12) | 0b0001111;
+            default -> throw new Error(String.format("unknown instruction mix \"%s\"", kind));
+        };
+    }
+
+    protected static int branch(final int funct3, final int rs1, final int rs2, final int offset) {
+        return (((offset >> 12) & 1) << 31) | (((offset >> 5) & 0x3f) << 25) | (rs2 << 20) | (rs1 << 15) | (funct3 << 12)
+                | (((offset >> 1) & 0xf) << 8) | (((offset >> 11) & 1) << 7) | 0b1100011;
+    }
+
+    protected static int jal(final int rd, final int offset) {
+        return (((offset >> 20) & 1) << 31) | (((offset >> 1) & 0x3ff) << 21) | (((offset >> 11) & 1) << 20)
+                | (((offset >> 12) & 0xff) << 12) | (rd << 7) | 0b1101111;
+    }
+
+    /**
+     * ELF32 image with {@code .text}, {@code .symtab}, {@code .strtab} and {@code .shstrtab}; every
+     * symbol but the first is a FUNC pointing somewhere into {@code .text}.
+     */
+    public static ByteBuffer elf(final int[] words, final int symbols, final long seed) {
+        return elf(words, symbols, seed, TEXT_ADDR);
+    }
+
+    /**
+     * Same image with {@code .text} and the symbols at {@code textAddr}.
+     */
+    public static ByteBuffer elf(final int[] words, final int symbols, final long seed, final int textAddr) {
+        final Random random = new Random(seed);
+        final ByteBuffer strtab = ByteBuffer.allocate(1 + 12 * symbols);
+        strtab.put((byte) 0);
+        final ByteBuffer symtab = ByteBuffer.allocate(16 * (symbols + 1)).order(ByteOrder.LITTLE_ENDIAN);
+        symtab.put(new byte[16]);
+        for (int i = 0; i < symbols; i++) {
+            symtab.putInt(strtab.position());
+            strtab.put(("f" + i).getBytes(StandardCharsets.US_ASCII)).put((byte) 0);
+            symtab.putInt(textAddr + 4 * (i == 0 || words.length == 0 ? 0 : random.nextInt(words.length)));
+            symtab.putInt(4 * random.nextInt(64));
+            symtab.put((byte) 0x12).put((byte) 0).putShort((short) 1);
+        }
+        final byte[] shstrtab = "\0.text\0.symtab\0.strtab\0.shstrtab\0".getBytes(StandardCharsets.US_ASCII);
+        final int textOffset = 52;
+        final int symtabOffset = textOffset + 4 * words.length;
+        final int strtabOffset = symtabOffset + symtab.capacity();
+        final int shstrtabOffset = strtabOffset + strtab.position();
+        final int shoff = (shstrtabOffset + shstrtab.length + 3) & ~3;
+        final ByteBuffer elf = ByteBuffer.allocate(shoff + 5 * 40).order(ByteOrder.LITTLE_ENDIAN);
+        elf.put(new byte[]{0x7f, 'E', 'L', 'F', 1, 1, 1, 0}).put(new byte[8]);
+        elf.putShort((short) 2).putShort((short) 0xf3).putInt(1).putInt(textAddr).putInt(0).putInt(shoff).putInt(0);
+        elf.putShort((short) 52).putShort((short) 0).putShort((short) 0).putShort((short) 40).putShort((short) 5).putShort((short) 4);
+        for (int word : words) {
+            elf.putInt(word);
+        }
+        elf.put(symtab.array());
+        elf.put(strtab.array(), 0, strtab.position());
+        elf.put(shstrtab);
+        elf.position(shoff);
+        elf.put(new byte[40]);
+        section(elf, 1, 1, 6, textAddr, textOffset, 4 * words.length, 0, 0, 4, 0);
+        section(elf, 7, 2, 0, 0, symtabOffset, symtab.capacity(), 3, 1, 4, 16);
+        section(elf, 15, 3, 0, 0, strtabOffset, strtab.position(), 0, 0, 1, 0);
+        section(elf, 23, 3, 0, 0, shstrtabOffset, shstrtab.length, 0, 0, 1, 0);
+        return elf.flip();
+    }
+
+    /**
+     * Relocatable ELF32 object like {@code -ffunction-sections} output: one code section per entry of
+     * {@code names}, names may repeat, all of them at address 0, and a {@code .symtab} without symbols.
+     */
+    public static ByteBuffer object(final String[] names, final int[][] words) {
+        final StringBuilder shstrtab = new StringBuilder("\0");
+        final int[] nameOffsets = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            nameOffsets[i] = shstrtab.length();
+            shstrtab.append(names[i]).append('\0');
+        }
+        final int symtabName = shstrtab.length();
+        shstrtab.append(".symtab\0.strtab\0.shstrtab\0");
+        int offset = 52;
+        final int[] offsets = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            offsets[i] = offset;
+            offset += 4 * words[i].length;
+        }
+        final int symtabOffset = offset;
+        final int strtabOffset = symtabOffset + 16;
+        final int shstrtabOffset = strtabOffset + 1;
+        final int shoff = (shstrtabOffset + shstrtab.length() + 3) & ~3;
+        final int count = names.length + 4;
+        final ByteBuffer elf = ByteBuffer.allocate(shoff + count * 40).order(ByteOrder.LITTLE_ENDIAN);
+        elf.put(new byte[]{0x7f, 'E', 'L', 'F', 1, 1, 1, 0}).put(new byte[8]);
+        elf.putShort((short) 1).putShort((short) 0xf3).putInt(1).putInt(0).putInt(0).putInt(shoff).putInt(0);
+        elf.putShort((short) 52).putShort((short) 0).putShort((short) 0).putShort((short) 40).putShort((short) count)
+                .putShort((short) (count - 1));
+        for (int[] section : words) {
+            for (int word : section) {
+                elf.putInt(word);
+            }
+        }
+        elf.put(new byte[17]);
+        elf.put(shstrtab.toString().getBytes(StandardCharsets.US_ASCII));
+        elf.position(shoff);
+        elf.put(new byte[40]);
+        for (int i = 0; i < names.length; i++) {
+            section(elf, nameOffsets[i], 1, 6, 0, offsets[i], 4 * words[i].length, 0, 0, 4, 0);
+        }
+        section(elf, symtabName, 2, 0, 0, symtabOffset, 16, count - 2, 1, 4, 16);
+        section(elf, symtabName + 8, 3, 0, 0, strtabOffset, 1, 0, 0, 1, 0);
+        section(elf, symtabName + 16, 3, 0, 0, shstrtabOffset, shstrtab.length(), 0, 0, 1, 0);
+        return elf.flip();
+    }
+
+    private static void section(final ByteBuffer elf, final int... fields) {
+        for (int field : fields) {
+            elf.putInt(field);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package disassembler;
+
+/**
+ * Bitset of branch and jump targets inside a code section, one bit per 2-byte parcel.
+ */
+public class TargetSet {
+    private final int addr;
+    private final int size;
+    private final long[] bits;
+
+    public TargetSet(final int addr, final int size) {
+        this.addr = addr;
+        this.size = size;
+        this.bits = new long[(size >>> 7) + 1];
+    }
+
+    public void add(final int target) {
+        final int offset = target - addr;
+        if (Integer.compareUnsigned(offset, size) < 0) {
+            bits[offset >>> 7] |= 1L << (offset >>> 1);
+        }
+    }
+
+    public boolean contains(final int target) {
+        final int offset = target - addr;
+        return Integer.compareUnsigned(offset, size) < 0 && (bits[offset >>> 7] & (1L << (offset >>> 1))) != 0;
+    }
+
+    /**
+     * Offsets are relative to the section start, so that sections above {@code 0x80000000} need no
+     * sentinel address.
+     *
+     * @return the offset of the first target at or after offset {@code from}, or the section size if there is none.
+     */
+    public int next(final int from) {
+        if (from >= size) {
+            return size;
+        }
+        final int parcel = from >>> 1;
+        int word = parcel >>> 6;
+        long rest = bits[word] & (-1L << parcel);
+        while (rest == 0) {
+            if (++word == bits.length) {
+                return size;
+            }
+            rest = bits[word];
+        }
+        return Math.min(2 * (64 * word + Long.numberOfTrailingZeros(rest)), size);
+    }
+}
\ No newline at end of file
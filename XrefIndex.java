@@ -0,0 +1,360 @@
+package disassembler;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cross references of an image. Every branch, jump and call is an edge in primitive arrays: in address
+ * order for all of them, and sorted by target for the direct ones, so that "who jumps to {@code addr}"
+ * is a binary search. The basic blocks of a function are the runs between leaders inside its
+ * {@code .symtab} FUNC extent; leaders are function starts, direct targets and the instructions after
+ * a branch or jump.
+ */
+public final class XrefIndex {
+    public static final int NONE = -1;
+    public static final int CALL = 0;
+    public static final int JUMP = 1;
+    public static final int BRANCH = 2;
+    /**
+     * {@code jalr} and {@code c.jalr} that link, the target is not known.
+     */
+    public static final int INDIRECT_CALL = 3;
+    /**
+     * {@code jalr} and {@code c.jr} without a link, returns included, the target is not known.
+     */
+    public static final int INDIRECT = 4;
+    /**
+     * Ints per edge in the arrays built by {@link Commands#collectEdges}: source, target, kind | length << 8.
+     */
+    protected static final int STRIDE = 3;
+    private static final String[] KIND_NAMES = {"call", "jump", "branch", "icall", "ijump"};
+    private static final int[] EMPTY = new int[0];
+
+    private final int[] sources;
+    private final int[] targets;
+    private final int[] kinds;
+    private final int[] byTarget;
+    private final int[] leaders;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] functions;
+    private final SymbolTable symbols;
+
+    /**
+     * @param found edges of consecutive code ranges in address order
+     */
+    protected XrefIndex(final List<int[]> found, final SymbolTable symbols) {
+        this.symbols = symbols;
+        int count = 0;
+        for (int[] edges : found) {
+            count += edges.length / STRIDE;
+        }
+        sources = new int[count];
+        targets = new int[count];
+        kinds = new int[count];
+        int direct = 0;
+        int i = 0;
+        for (int[] edges : found) {
+            for (int j = 0; j < edges.length; j += STRIDE, i++) {
+                sources[i] = edges[j];
+                targets[i] = edges[j + 1];
+                kinds[i] = edges[j + 2];
+                direct += hasTarget(kinds[i]) ? 1 : 0;
+            }
+        }
+        final long[] keys = new long[direct];
+        for (i = 0, direct = 0; i < count; i++) {
+            if (hasTarget(kinds[i])) {
+                keys[direct++] = Integer.toUnsignedLong(targets[i]) << 32 | i;
+            }
+        }
+        byTarget = lowHalves(keys);
+
+        final long[] extents = new long[symbols.size()];
+        int functionCount = 0;
+        for (i = 0; i < symbols.size(); i++) {
+            if (symbols.isFunction(i) && symbols.size(i) != 0) {
+                extents[functionCount++] = Integer.toUnsignedLong(symbols.value(i)) << 32 | i;
+            }
+        }
+        functions = lowHalves(Arrays.copyOf(extents, functionCount));
+        starts = new int[functionCount];
+        ends = new int[functionCount];
+        for (i = 0; i < functionCount; i++) {
+            starts[i] = symbols.value(functions[i]);
+            ends[i] = starts[i] + symbols.size(functions[i]);
+        }
+
+        final long[] candidates = new long[functionCount + 2 * count];
+        int leaderCount = 0;
+        for (int start : starts) {
+            candidates[leaderCount++] = Integer.toUnsignedLong(start);
+        }
+        for (i = 0; i < count; i++) {
+            if (hasTarget(kinds[i])) {
+                candidates[leaderCount++] = Integer.toUnsignedLong(targets[i]);
+            }
+            if (endsBlock(kinds[i])) {
+                candidates[leaderCount++] = Integer.toUnsignedLong(sources[i] + length(i));
+            }
+        }
+        Arrays.sort(candidates, 0, leaderCount);
+        int unique = 0;
+        for (i = 0; i < leaderCount; i++) {
+            if (unique == 0 || candidates[i] != candidates[unique - 1]) {
+                candidates[unique++] = candidates[i];
+            }
+        }
+        leaders = new int[unique];
+        for (i = 0; i < unique; i++) {
+            leaders[i] = (int) candidates[i];
+        }
+    }
+
+    private static int[] lowHalves(final long[] keys) {
+        Arrays.sort(keys);
+        final int[] values = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = (int) keys[i];
+        }
+        return values;
+    }
+
+    protected static boolean hasTarget(final int kind) {
+        return (kind & 0xff) <= BRANCH;
+    }
+
+    private static boolean endsBlock(final int kind) {
+        return (kind & 0xff) == JUMP || (kind & 0xff) == BRANCH || (kind & 0xff) == INDIRECT;
+    }
+
+    private int length(final int i) {
+        return kinds[i] >>> 8;
+    }
+
+    /**
+     * @return the number of direct edges.
+     */
+    public int size() {
+        return byTarget.length;
+    }
+
+    /**
+     * Direct edges are numbered in target order, edges to the same target in source order.
+     */
+    public int source(final int edge) {
+        return sources[byTarget[edge]];
+    }
+
+    public int target(final int edge) {
+        return targets[byTarget[edge]];
+    }
+
+    public int kind(final int edge) {
+        return kinds[byTarget[edge]] & 0xff;
+    }
+
+    public static String kindName(final int kind) {
+        return KIND_NAMES[kind];
+    }
+
+    /**
+     * @return the addresses of all branches, jumps and calls to {@code target}.
+     */
+    public int[] sources(final int target) {
+        return sources(target, NONE);
+    }
+
+    /**
+     * @return the addresses of the direct calls to {@code target}.
+     */
+    public int[] callers(final int target) {
+        return sources(target, CALL);
+    }
+
+    private int[] sources(final int target, final int kind) {
+        int[] found = new int[8];
+        int count = 0;
+        for (int edge = firstEdge(target); edge < byTarget.length && target(edge) == target; edge++) {
+            if (kind == NONE || kind(edge) == kind) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, 2 * count);
+                }
+                found[count++] = source(edge);
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private int firstEdge(final int target) {
+        int lo = 0;
+        int hi = byTarget.length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (Integer.compareUnsigned(target(mid), target) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return the start addresses of the basic blocks of the function whose extent contains {@code addr}.
+     */
+    public int[] blocks(final int addr) {
+        final int function = functionIndex(addr);
+        if (function < 0) {
+            return EMPTY;
+        }
+        final int from = firstAtOrAfter(leaders, starts[function]);
+        int to = from;
+        while (to < leaders.length && Integer.compareUnsigned(leaders[to], ends[function]) < 0) {
+            to++;
+        }
+        return Arrays.copyOfRange(leaders, from, to);
+    }
+
+    /**
+     * @return the end address (exclusive) of the basic block starting at {@code block}.
+     */
+    public int blockEnd(final int block) {
+        final int function = functionIndex(block);
+        if (function < 0) {
+            return block;
+        }
+        final int next = firstAtOrAfter(leaders, block + 1);
+        return next < leaders.length && Integer.compareUnsigned(leaders[next], ends[function]) < 0 ? leaders[next] : ends[function];
+    }
+
+    /**
+     * @return the blocks control can reach from the basic block starting at {@code block}: the branch or
+     * jump target, which may lie outside the function, and the fall-through block.
+     */
+    public int[] successors(final int block) {
+        final int function = functionIndex(block);
+        if (function < 0) {
+            return EMPTY;
+        }
+        final int end = blockEnd(block);
+        final boolean fallsThrough = Integer.compareUnsigned(end, ends[function]) < 0;
+        final int last = firstAtOrAfter(sources, end) - 1;
+        if (last >= 0 && Integer.compareUnsigned(sources[last], block) >= 0 && sources[last] + length(last) == end) {
+            switch (kinds[last] & 0xff) {
+                case BRANCH -> {
+                    return fallsThrough ? new int[]{targets[last], end} : new int[]{targets[last]};
+                }
+                case JUMP -> {
+                    return new int[]{targets[last]};
+                }
+                case INDIRECT -> {
+                    return EMPTY;
+                }
+                default -> {
+                }
+            }
+        }
+        return fallsThrough ? new int[]{end} : EMPTY;
+    }
+
+    private int functionIndex(final int addr) {
+        final int hi = firstAtOrAfter(starts, addr + 1) - 1;
+        return hi >= 0 && Integer.compareUnsigned(addr - starts[hi], ends[hi] - starts[hi]) < 0 ? hi : -1;
+    }
+
+    private static int firstAtOrAfter(final int[] sorted, final int value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (Integer.compareUnsigned(sorted[mid], value) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * {@code .xref} lists the direct edges by target, {@code .blocks} the basic blocks of every function
+     * with their successors.
+     */
+    protected void writeTo(final OutputBuffer out, final Commands commands) throws IOException {
+        out.write("\n.xref\n");
+        for (int edge = 0; edge < byTarget.length; edge++) {
+            out.write("   ");
+            out.writeHex(target(edge), 5);
+            out.write(" <");
+            out.write(commands.getLabel(target(edge)));
+            out.write(">\t");
+            out.writePadded(kindName(kind(edge)), -6);
+            out.write("\tfrom ");
+            out.writeHex(source(edge), 5);
+            final int function = functionIndex(source(edge));
+            if (function >= 0) {
+                out.write(" <");
+                out.write(symbols.name(functions[function]));
+                out.write('>');
+            }
+            out.newLine();
+            out.flushIfFull();
+        }
+        out.write("\n.blocks\n");
+        for (int function = 0; function < starts.length; function++) {
+            out.writeHex(starts[function], 8);
+            out.write("   <");
+            out.write(symbols.name(functions[function]));
+            out.write(">:\n");
+            for (int block : blocks(starts[function])) {
+                out.write("   ");
+                out.writeHex(block, 5);
+                out.write('-');
+                out.writeHex(blockEnd(block), 5);
+                final int[] next = successors(block);
+                if (next.length > 0) {
+                    out.write("\t-> ");
+                    for (int i = 0; i < next.length; i++) {
+                        out.write(i == 0 ? "" : ", ");
+                        out.writeHex(next[i], 5);
+                    }
+                }
+                out.newLine();
+            }
+            out.flushIfFull();
+        }
+    }
+
+    protected void writeJsonTo(final OutputBuffer out) throws IOException {
+        for (int edge = 0; edge < byTarget.length; edge++) {
+            out.write("{\"xref\":");
+            out.writeUnsigned(source(edge));
+            out.write(",\"to\":");
+            out.writeUnsigned(target(edge));
+            out.write(",\"kind\":\"");
+            out.write(kindName(kind(edge)));
+            out.write("\"}\n");
+            out.flushIfFull();
+        }
+        for (int function = 0; function < starts.length; function++) {
+            for (int block : blocks(starts[function])) {
+                out.write("{\"block\":");
+                out.writeUnsigned(block);
+                out.write(",\"end\":");
+                out.writeUnsigned(blockEnd(block));
+                out.write(",\"function\":");
+                StructuredOutput.writeJsonString(out, symbols.name(functions[function]));
+                out.write(",\"next\":[");
+                final int[] next = successors(block);
+                for (int i = 0; i < next.length; i++) {
+                    out.write(i == 0 ? "" : ",");
+                    out.writeUnsigned(next[i]);
+                }
+                out.write("]}\n");
+            }
+            out.flushIfFull();
+        }
+    }
+}
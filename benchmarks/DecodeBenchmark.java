@@ -0,0 +1,70 @@
+package disassembler;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Instructions per second of {@link Commands#parseCommand} for every instruction class of
+ * {@link Synthetic#MIXES}. {@code cached} decodes a firmware-like stream, a few hundred distinct words
+ * of the same class repeated over and over, through a {@link DecodeCache}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+    private static final int COUNT = 100_000;
+    private static final int HEADER = 52;
+
+    @Param({"R", "I", "S", "B", "U", "J", "CSR", "FENCE", "MIXED"})
+    public String mix;
+
+    private ElfInput input;
+    private ElfInput repeated;
+    private Commands commands;
+
+    @Setup
+    public void setUp() {
+        input = new ElfInput(Synthetic.elf(Synthetic.instructions(mix, COUNT, 1), 0, 1));
+        final int[] distinct = Synthetic.instructions(mix, 512, 1);
+        final int[] words = new int[COUNT];
+        final Random random = new Random(1);
+        for (int i = 0; i < COUNT; i++) {
+            words[i] = distinct[random.nextInt(distinct.length)];
+        }
+        repeated = new ElfInput(Synthetic.elf(words, 0, 1));
+        commands = new Commands(new IntIndex(16), new SymbolTable(null, 0));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void decode(final Blackhole blackhole) {
+        for (int i = 0, left = HEADER; i < COUNT; i++, left += 4) {
+            blackhole.consume(commands.parseCommand(input, left, Synthetic.TEXT_ADDR + 4 * i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void cached(final Blackhole blackhole) {
+        final DecodeCache cache = new DecodeCache(4096);
+        for (int i = 0, left = HEADER; i < COUNT; i++, left += 4) {
+            blackhole.consume(commands.parseCommand(repeated, left, Synthetic.TEXT_ADDR + 4 * i, cache));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package disassembler;
+
+/**
+ * Output that is formatted in full and then dropped, so the end-to-end benchmarks measure the
+ * disassembler and not the file system.
+ */
+public class DiscardOutput extends OutputBuffer {
+    public DiscardOutput() {
+        super(2 * CHUNK);
+    }
+
+    @Override
+    public void flush() {
+        clear();
+    }
+}
@@ -0,0 +1,45 @@
+package disassembler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole text listings of generated ELF files of increasing size, one symbol per 50 instructions; one
+ * operation is one file, so instructions per second are the score times {@code instructions}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int instructions;
+
+    private ByteBuffer elf;
+    private final DiscardOutput out = new DiscardOutput();
+
+    @Setup
+    public void setUp() {
+        elf = Synthetic.elf(Synthetic.instructions("MIXED", instructions, 1), instructions / 50, 1);
+    }
+
+    @Benchmark
+    public long disassemble() throws IOException {
+        new Parser(new ElfInput(elf), out).disassemble();
+        return out.written();
+    }
+}
@@ -0,0 +1,62 @@
+package disassembler;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The mask/compare scan of {@code --search} alone, Vector API against the scalar loop: every
+ * {@code csrrw} to {@code mtvec} in a 4 MiB section, the score is bytes per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ScanBenchmark {
+    private static final int INSTRUCTIONS = 1 << 20;
+    private static final int HEADER = 52;
+    private static final int SIZE = 4 * INSTRUCTIONS;
+    private static final int MASK = 0xfff0707f;
+    private static final int VALUE = 0x30501073;
+
+    @Param({"vector", "scalar"})
+    public String scan;
+
+    private ElfInput input;
+
+    @Setup
+    public void setUp() {
+        if (scan.equals("vector") && !ElfInput.VECTOR) {
+            throw new IllegalStateException("jdk.incubator.vector is not available");
+        }
+        final ByteBuffer elf = Synthetic.elf(Synthetic.instructions("MIXED", INSTRUCTIONS, 1), 0, 1);
+        input = new ElfInput(elf);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int scan() {
+        final boolean vector = scan.equals("vector");
+        final int to = HEADER + SIZE;
+        int found = 0;
+        for (int left = HEADER; ; left += 2, found++) {
+            left = vector ? input.find(left, to, to, MASK, VALUE) : input.findScalar(left, to, to, MASK, VALUE);
+            if (left == to) {
+                return found;
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package disassembler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code --search} over the image of the largest end-to-end case, for a rare and a common shape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SearchBenchmark {
+    private static final int INSTRUCTIONS = 1_000_000;
+
+    @Param({"csrrw csr=mtvec", "store rs1=gp"})
+    public String query;
+
+    private ByteBuffer elf;
+    private Search search;
+    private final DiscardOutput out = new DiscardOutput();
+
+    @Setup
+    public void setUp() {
+        elf = Synthetic.elf(Synthetic.instructions("MIXED", INSTRUCTIONS, 1), INSTRUCTIONS / 50, 1);
+        search = new Search(List.of(query));
+    }
+
+    @Benchmark
+    public int search() throws IOException {
+        return new Parser(new ElfInput(elf), out).search(search);
+    }
+}
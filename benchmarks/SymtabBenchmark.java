@@ -0,0 +1,44 @@
+package disassembler;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Header and {@code .symtab} parsing of images with 1k to 1M symbols; one operation reads a whole table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymtabBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int symbols;
+
+    private ByteBuffer elf;
+
+    @Setup
+    public void setUp() {
+        elf = Synthetic.elf(new int[]{0x00000013}, symbols, 1);
+    }
+
+    @Benchmark
+    public Parser parse() {
+        final Parser parser = new Parser(new ElfInput(elf), new OutputBuffer(16));
+        parser.parseHeader();
+        parser.parseSymtab();
+        return parser;
+    }
+}
@@ -0,0 +1,45 @@
+package disassembler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The mask/compare part of {@link ElfInput#find} on SIMD registers. Instructions start on any 2-byte
+ * parcel, so every step loads the words at {@code from}, {@code from + 4}, ... and the ones at
+ * {@code from + 2}, {@code from + 6}, ... into two vectors. This is the only class that uses
+ * {@code jdk.incubator.vector}; {@link ElfInput} touches it only when that module is present.
+ */
+final class VectorScan {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    protected static final int LANES = SPECIES.length();
+    private static final int BYTES = SPECIES.vectorByteSize();
+
+    private VectorScan() {
+    }
+
+    /**
+     * Tests only words that lie before {@code limit} in full, the scalar loop finishes the rest.
+     *
+     * @return the first offset in {@code [from, end)} whose word matches {@code value} under
+     * {@code mask}, or the first offset it did not test.
+     */
+    protected static int find(final ByteBuffer buffer, int from, final int end, final int limit, final int mask, final int value) {
+        final IntVector masks = IntVector.broadcast(SPECIES, mask);
+        final IntVector values = IntVector.broadcast(SPECIES, value);
+        for (; from + BYTES <= end && from + BYTES + 2 <= limit; from += BYTES) {
+            final VectorMask<Integer> even = IntVector.fromByteBuffer(SPECIES, buffer, from, ByteOrder.LITTLE_ENDIAN)
+                    .and(masks).eq(values);
+            final VectorMask<Integer> odd = IntVector.fromByteBuffer(SPECIES, buffer, from + 2, ByteOrder.LITTLE_ENDIAN)
+                    .and(masks).eq(values);
+            if (even.or(odd).anyTrue()) {
+                final int first = even.firstTrue();
+                final int second = odd.firstTrue();
+                return first <= second ? from + 4 * first : from + 2 + 4 * second;
+            }
+        }
+        return from;
+    }
+}